@@ -0,0 +1,60 @@
+package bench;
+
+import model.DocumentGenerator;
+import model.SegmentModel;
+import model.SpanIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DragBenchmark {
+    @Param({"10", "1000"})
+    public int points;
+
+    private SegmentModel segment;
+    private SpanIndex index;
+    private int point;
+    private double sink;
+    private int step;
+
+    @Setup
+    public void setup() {
+        segment = DocumentGenerator.generate(SerializationBenchmark.SEED, 1, points, 4000, 4000).segments.get(0);
+        index = new SpanIndex();
+        index.add(segment);
+
+        segment.bind(changed -> {
+            for (int span = Math.max(changed - 1, 0); span < Math.min(changed + 1, segment.getSpanCount()); ++span) {
+                sink += segment.getOutX(span) + segment.getOutY(span) + segment.getInX(span + 1) + segment.getInY(span + 1);
+            }
+        });
+        segment.bind(changed -> sink += segment.getHandleX(changed, false) + segment.getHandleY(changed, true));
+
+        point = segment.size / 2;
+        segment.smooth.set(point);
+    }
+
+    @Benchmark
+    public double dragPoint() {
+        double delta = (step++ & 1) == 0 ? 1 : -1;
+        segment.movePoint(point, segment.getX(point) + delta, segment.getY(point) + delta);
+        return sink;
+    }
+
+    @Benchmark
+    public double dragControl() {
+        double delta = (step++ & 1) == 0 ? 1 : -1;
+        segment.moveControl(point, false, segment.getHandleX(point, false) + delta, segment.getHandleY(point, false) - delta);
+        return sink;
+    }
+}
@@ -0,0 +1,112 @@
+package bench;
+
+import model.Bezier;
+import model.CurveDocument;
+import model.DocumentGenerator;
+import model.FlatteningCache;
+import model.Polyline;
+import model.SegmentModel;
+import model.SnapIndex;
+import model.SpanIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HitTestBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"1000", "10000"})
+    public int segments;
+
+    private CurveDocument document;
+    private SpanIndex index;
+    private SpanIndex flattenedIndex;
+    private SnapIndex snapIndex;
+    private double[] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        document = DocumentGenerator.generate(SerializationBenchmark.SEED, segments, 20);
+        index = new SpanIndex();
+        flattenedIndex = new SpanIndex(new FlatteningCache());
+        snapIndex = new SnapIndex();
+        for (SegmentModel segment : document.segments) {
+            index.add(segment);
+            flattenedIndex.add(segment);
+            snapIndex.add(segment);
+        }
+
+        Random random = new Random(SerializationBenchmark.SEED);
+        queries = new double[QUERIES * 2];
+        for (int i = 0; i < queries.length; ++i) {
+            queries[i] = random.nextDouble() * DocumentGenerator.getSize(segments);
+        }
+    }
+
+    @Benchmark
+    public double evaluate() {
+        double t = (next++ & 1023) / 1023.0;
+        return Bezier.evaluate(0, 100, 200, 300, t) + Bezier.evaluate(0, 300, -300, 0, t);
+    }
+
+    @Benchmark
+    public double distanceSquared() {
+        int query = (next++ & (QUERIES - 1)) * 2;
+        return document.segments.get(0).distanceSquared(0, queries[query], queries[query + 1]);
+    }
+
+    @Benchmark
+    public Object flatten() {
+        Polyline polyline = new Polyline();
+        Bezier.flatten(0, 0, 100, 300, 200, -300, 300, 0, FlatteningCache.DEFAULT_TOLERANCE, polyline);
+        return polyline;
+    }
+
+    @Benchmark
+    public Object pick() {
+        int query = (next++ & (QUERIES - 1)) * 2;
+        return index.pick(queries[query], queries[query + 1], 2);
+    }
+
+    @Benchmark
+    public Object pickFlattened() {
+        int query = (next++ & (QUERIES - 1)) * 2;
+        return flattenedIndex.pick(queries[query], queries[query + 1], 2);
+    }
+
+    @Benchmark
+    public Object snap() {
+        int query = (next++ & (QUERIES - 1)) * 2;
+        return snapIndex.nearest(queries[query], queries[query + 1], 6, null, -1);
+    }
+
+    @Benchmark
+    public Object pickLinear() {
+        int query = (next++ & (QUERIES - 1)) * 2;
+        double x = queries[query];
+        double y = queries[query + 1];
+        SegmentModel found = null;
+
+        for (SegmentModel segment : document.segments) {
+            double tolerance = segment.thickness / 2.0 + 2;
+            for (int i = 0; i < segment.getSpanCount(); ++i) {
+                if (segment.distanceSquared(i, x, y) <= tolerance * tolerance) {
+                    found = segment;
+                }
+            }
+        }
+        return found;
+    }
+}
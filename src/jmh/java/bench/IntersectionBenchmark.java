@@ -0,0 +1,59 @@
+package bench;
+
+import model.CurveDocument;
+import model.CurveIntersector;
+import model.DocumentGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IntersectionBenchmark {
+    private static final double DENSITY = 4;
+
+    @Param({"1000", "10000"})
+    public int segments;
+
+    private CurveDocument document;
+    private CurveIntersector intersector;
+    private ForkJoinPool sequential;
+
+    @Setup
+    public void setup() {
+        double size = DocumentGenerator.getSize(segments) / DENSITY;
+        document = DocumentGenerator.generate(SerializationBenchmark.SEED, segments, 20, size, size);
+        intersector = new CurveIntersector(document.segments);
+        sequential = new ForkJoinPool(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sequential.shutdown();
+    }
+
+    @Benchmark
+    public Object prepare() {
+        return new CurveIntersector(document.segments);
+    }
+
+    @Benchmark
+    public Object findSequential() {
+        return intersector.find(sequential);
+    }
+
+    @Benchmark
+    public Object findParallel() {
+        return intersector.find(ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,50 @@
+package bench;
+
+import model.DocumentGenerator;
+import model.FlatteningCache;
+import model.Polyline;
+import model.SegmentModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PenBenchmark {
+    private static final int BATCH = 1000;
+
+    @Param({"1000", "20000"})
+    public int points;
+
+    private SegmentModel segment;
+    private FlatteningCache flattening;
+    private int step;
+
+    @Setup
+    public void setup() {
+        segment = DocumentGenerator.generate(SerializationBenchmark.SEED, 1, points, 4000, 4000).segments.get(0);
+        flattening = new FlatteningCache();
+    }
+
+    @Benchmark
+    public Polyline click() {
+        if (segment.size == points + BATCH) {
+            while (segment.size > points) {
+                segment.removeLast();
+            }
+            flattening.invalidate(segment);
+        }
+
+        double delta = (step++ & 1) == 0 ? 20 : -20;
+        int point = segment.add(segment.getX(segment.size - 1) + delta, segment.getY(segment.size - 1) + 20);
+        return flattening.getSpan(segment, point - 1);
+    }
+}
@@ -0,0 +1,92 @@
+package bench;
+
+import model.CurveBinaryFormat;
+import model.CurveDocument;
+import model.DocumentGenerator;
+import model.SegmentModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+    public static final long SEED = 42;
+
+    @State(Scope.Benchmark)
+    public static class SegmentState {
+        @Param({"10", "100", "1000"})
+        public int points;
+
+        public SegmentModel segment;
+        public String data;
+        public Random random;
+
+        @Setup
+        public void setup() {
+            segment = DocumentGenerator.generate(SEED, 1, points, 4000, 4000).segments.get(0);
+            data = segment.save();
+            random = new Random(SEED);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class DocumentState {
+        @Param({"1000", "10000"})
+        public int segments;
+
+        public CurveDocument document;
+        public String[] data;
+        public ByteArrayOutputStream buffer;
+
+        @Setup
+        public void setup() {
+            document = DocumentGenerator.generate(SEED, segments, 20);
+            data = document.save().split("\\*");
+            buffer = new ByteArrayOutputStream();
+        }
+    }
+
+    @Benchmark
+    public String saveSegment(SegmentState state) {
+        return state.segment.save();
+    }
+
+    @Benchmark
+    public SegmentModel parseSegment(SegmentState state) {
+        return new SegmentModel(state.data, state.random);
+    }
+
+    @Benchmark
+    public String saveDocument(DocumentState state) {
+        return state.document.save();
+    }
+
+    @Benchmark
+    public void parseDocument(DocumentState state, Blackhole blackhole) {
+        for (String part : state.data) {
+            if (!part.isEmpty()) {
+                blackhole.consume(new SegmentModel(part, state.document.random));
+            }
+        }
+    }
+
+    @Benchmark
+    public int writeBinary(DocumentState state) throws IOException {
+        state.buffer.reset();
+        CurveBinaryFormat.write(state.document.snapshot(), new DataOutputStream(state.buffer), false);
+        return state.buffer.size();
+    }
+}
@@ -0,0 +1,123 @@
+import model.CurveDocument;
+import model.PngExporter;
+import model.SvgExporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchExport {
+    private static final String EXTENSION = ".curve";
+
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+
+        File input = null;
+        File output = null;
+        boolean svg = false;
+        boolean png = false;
+        double scale = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("--svg")) {
+                svg = true;
+            } else if (args[i].equals("--png")) {
+                png = true;
+            } else if (args[i].equals("--scale") && i + 1 < args.length) {
+                scale = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (input == null) {
+                input = new File(args[i]);
+            } else if (output == null) {
+                output = new File(args[i]);
+            } else {
+                usage();
+                return;
+            }
+        }
+
+        if (input == null || !input.isDirectory() || threads < 1 || scale <= 0) {
+            usage();
+            return;
+        }
+        if (output == null) {
+            output = input;
+        }
+        if (!svg && !png) {
+            svg = true;
+            png = true;
+        }
+        if (!output.isDirectory() && !output.mkdirs()) {
+            System.err.println("Cannot create output directory " + output);
+            System.exit(1);
+        }
+
+        File[] files = input.listFiles((directory, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            System.err.println("Cannot list " + input);
+            System.exit(1);
+        }
+        Arrays.sort(files);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Semaphore inFlight = new Semaphore(threads * 2);
+        AtomicInteger converted = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+
+        File target = output;
+        boolean writeSvg = svg;
+        boolean writePng = png;
+        double pngScale = scale;
+        int rasterThreads = Math.max(1, threads / Math.max(1, files.length));
+
+        for (File file : files) {
+            inFlight.acquire();
+            pool.execute(() -> {
+                try {
+                    export(file, target, writeSvg, writePng, pngScale, rasterThreads);
+                    converted.incrementAndGet();
+                } catch (IOException | RuntimeException exception) {
+                    failed.incrementAndGet();
+                    System.err.println(file.getName() + ": " + exception.getMessage());
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Converted " + converted.get() + " of " + files.length + " files on " + threads + " threads in " + elapsed + " ms");
+        if (failed.get() > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void export(File file, File output, boolean svg, boolean png, double scale, int threads) throws IOException {
+        String name = file.getName().substring(0, file.getName().length() - EXTENSION.length());
+        CurveDocument document = new CurveDocument(new Random(0));
+        document.load(file);
+
+        if (svg) {
+            SvgExporter.write(document.segments, new File(output, name + ".svg"));
+        }
+        if (png) {
+            PngExporter.write(document.segments, new File(output, name + ".png"), scale, threads);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: BatchExport <input directory> [output directory] [--svg] [--png] [--scale factor] [--threads count]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,107 @@
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Scale;
+
+import model.FlatteningCache;
+import model.Polyline;
+import model.SegmentModel;
+import model.SpanIndex;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+public class CanvasRenderer {
+    public static final double POLYLINE_PIXELS = 48;
+    public static final double LINE_PIXELS = 4;
+    public static final double DOT_PIXELS = 1;
+
+    public Canvas canvas;
+    public FlatteningCache cache;
+    private Scale inverse;
+
+    public CanvasRenderer(FlatteningCache cache) {
+        this.cache = cache;
+        inverse = new Scale(1, 1);
+        canvas = new Canvas();
+        canvas.setMouseTransparent(true);
+        canvas.getTransforms().add(inverse);
+    }
+
+    public void render(List<SpanIndex.SpanEntry> spans, SegmentModel pending, double x, double y, double width, double height, double scale) {
+        double pixelWidth = Math.ceil(width * scale);
+        double pixelHeight = Math.ceil(height * scale);
+
+        canvas.setLayoutX(x);
+        canvas.setLayoutY(y);
+        canvas.setWidth(pixelWidth);
+        canvas.setHeight(pixelHeight);
+        inverse.setX(1 / scale);
+        inverse.setY(1 / scale);
+
+        GraphicsContext context = canvas.getGraphicsContext2D();
+        context.clearRect(0, 0, pixelWidth, pixelHeight);
+        context.save();
+        context.scale(scale, scale);
+        context.translate(-x, -y);
+
+        spans.sort(Comparator.comparingLong(entry -> entry.order));
+        HashSet<SegmentModel> simplified = new HashSet<>();
+        HashSet<Long> dots = new HashSet<>();
+        SegmentModel current = null;
+        Polyline flattened = null;
+        double extent = 0;
+
+        for (SpanIndex.SpanEntry entry : spans) {
+            if (entry.segment != current) {
+                current = entry.segment;
+                flattened = cache.get(current);
+                extent = flattened.getExtent() * scale;
+                setStroke(context, current);
+            }
+
+            if (extent >= POLYLINE_PIXELS) {
+                drawSpan(context, current, entry.span);
+            } else if (simplified.add(current)) {
+                if (extent >= LINE_PIXELS) {
+                    context.strokePolyline(flattened.xs, flattened.ys, flattened.count);
+                } else if (extent >= DOT_PIXELS) {
+                    context.strokeLine(flattened.xs[0], flattened.ys[0], flattened.xs[flattened.count - 1], flattened.ys[flattened.count - 1]);
+                } else {
+                    double centerX = (flattened.minX + flattened.maxX) / 2;
+                    double centerY = (flattened.minY + flattened.maxY) / 2;
+                    long pixel = ((long) Math.floor(centerX * scale) << 32) | ((long) Math.floor(centerY * scale) & 0xffffffffL);
+
+                    if (dots.add(pixel)) {
+                        double size = Math.max(current.thickness, 1 / scale);
+                        context.setFill(Color.valueOf(SegmentModel.formatColor(current.color)));
+                        context.fillRect(centerX - size / 2, centerY - size / 2, size, size);
+                    }
+                }
+            }
+        }
+
+        if (pending != null && pending.getSpanCount() > 0) {
+            setStroke(context, pending);
+            for (int i = 0; i < pending.getSpanCount(); ++i) {
+                drawSpan(context, pending, i);
+            }
+        }
+
+        context.restore();
+    }
+
+    private void setStroke(GraphicsContext context, SegmentModel segment) {
+        context.setStroke(Color.valueOf(SegmentModel.formatColor(segment.color)));
+        context.setLineWidth(segment.thickness);
+        context.setLineDashes(SegmentModel.getDashArray(segment.style, segment.thickness));
+    }
+
+    private void drawSpan(GraphicsContext context, SegmentModel segment, int span) {
+        context.beginPath();
+        context.moveTo(segment.getX(span), segment.getY(span));
+        context.bezierCurveTo(segment.getOutX(span), segment.getOutY(span), segment.getInX(span + 1), segment.getInY(span + 1), segment.getX(span + 1), segment.getY(span + 1));
+        context.stroke();
+    }
+}
@@ -1,20 +1,33 @@
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Bounds;
 import javafx.geometry.Insets;
+import javafx.geometry.Point2D;
+import javafx.scene.Group;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Label;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.SeparatorMenuItem;
 import javafx.scene.control.ColorPicker;
 import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Alert;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.layout.Region;
@@ -29,18 +42,58 @@ import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
 import javafx.scene.shape.Circle;
+import javafx.scene.shape.ClosePath;
 import javafx.scene.shape.CubicCurve;
 import javafx.scene.shape.Line;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
+import javafx.scene.transform.Scale;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import model.CompoundCommand;
+import model.CurveBinaryFormat;
+import model.CurveDocument;
+import model.CurveIntersector;
+import model.CurvePointBind;
+import model.CurveReader;
+import model.CurveStyle;
+import model.DocumentSnapshot;
+import model.DragMetrics;
+import model.EditCommand;
+import model.EditHistory;
+import model.EditJournal;
+import model.FlatteningCache;
+import model.LoadMetrics;
+import model.PngExporter;
+import model.SegmentModel;
+import model.SegmentSnapshot;
+import model.SegmentTransform;
+import model.SnapIndex;
+import model.SpanIndex;
+import model.SvgExporter;
+
 import java.io.File;
-import java.io.FileWriter;
-import java.nio.file.Files;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Random;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class Main extends Application {
     private CurveTool selectedTool;
@@ -49,22 +102,73 @@ public class Main extends Application {
     private Color selectedColor;
     private ColorPicker colorPicker;
     private Pane canvas;
-    private Random random;
+    private Pane curveLayer;
+    private Pane handleLayer;
+    private CurveDocument document;
     private ArrayList<CurveSegment> segments;
+    private HashMap<SegmentModel, CurveSegment> views;
+    private HashSet<CurveSegment> attached;
     private CurveSegment currentSegment;
     private CurveSegment currentFocus;
+    private LinkedHashSet<CurveSegment> selection;
+    private Path selectionOutline;
+    private Rectangle marquee;
+    private double marqueeX;
+    private double marqueeY;
     private CurvePoint currentPoint;
     private Button pointButton;
     private ArrayList<Button> thicknessButtons;
     private ArrayList<Button> styleButtons;
     private ArrayList<Button> toolButtons;
     private boolean isSaved;
+    private long revision;
+    private ExecutorService saveExecutor;
+    private EditJournal journal;
+    private long journalFlushed;
+    private EditHistory history;
+    private MenuItem undoCommand;
+    private MenuItem redoCommand;
     private MenuItem cutCommand;
     private MenuItem copyCommand;
     private MenuItem pasteCommand;
-    private String clipboard;
+    private ArrayList<SegmentSnapshot> clipboard;
     private int copyOffset;
     private ArrayList<Label> labels;
+    private ScrollPane scrollPane;
+    private CanvasRenderer renderer;
+    private SpanIndex index;
+    private SnapIndex snapIndex;
+    private boolean pointSnapping;
+    private boolean gridSnapping;
+    private FlatteningCache flattening;
+    private Group zoomGroup;
+    private Scale zoomScale;
+    private double zoom;
+    private double panX;
+    private double panY;
+    private double panH;
+    private double panV;
+    private boolean canvasRendering;
+    private boolean renderPending;
+    private Task<Void> loadTask;
+    private LoadMetrics loadMetrics;
+    private ProgressBar loadProgress;
+    private Button cancelButton;
+    private Label statusLabel;
+    private DragTarget dragTarget;
+    private double dragX;
+    private double dragY;
+    private DragMetrics dragMetrics;
+
+    private static final long LOAD_BATCH_NANOS = 16_000_000L;
+    private static final long JOURNAL_FLUSH_NANOS = 250_000_000L;
+    private static final double VIEWPORT_MARGIN = 256;
+    private static final double ZOOM_STEP = 1.25;
+    private static final double SCALE_STEP = 1.25;
+    private static final double SNAP_PIXELS = 6;
+    private static final double GRID_SIZE = 16;
+    private static final double MIN_ZOOM = 1.0 / 64;
+    private static final double MAX_ZOOM = 32;
 
     enum CurveTool {
         NONE,
@@ -73,198 +177,195 @@ public class Main extends Application {
         ERASE
     }
 
-    enum CurveStyle {
-        NORMAL,
-        DASHED,
-        COMBINED,
-        DOTTED
-    }
-
-    interface CurvePointBind {
-        void onChange(double x, double y);
+    interface DragTarget {
+        void drag(double x, double y);
     }
 
-    class ControlPoint {
+    class ControlPoint implements DragTarget {
+        public CurvePoint parent;
+        public int index;
+        public boolean out;
         public Line line;
         public Circle control;
-        public double offsetX;
-        public double offsetY;
-        public ArrayList<CurvePointBind> callbacks;
-
-        public ControlPoint(CurvePoint parent) {
-            callbacks = new ArrayList<>();
-            offsetX = (random.nextInt(30) + 30) * (random.nextBoolean() ? -1 : 1);
-            offsetY = (random.nextInt(30) + 30) * (random.nextBoolean() ? -1 : 1);
-
-            if (parent.controlPoints.size() > 0) {
-                ControlPoint previous = parent.controlPoints.get(0);
-                offsetX = -previous.offsetX;
-                offsetY = -previous.offsetY;
-            }
+        private double[] dragStart;
 
-            double controlX = parent.point.getCenterX() + offsetX;
-            double controlY = parent.point.getCenterY() + offsetY;
+        public ControlPoint(CurvePoint parent, int index) {
+            this.parent = parent;
+            this.index = index;
+            this.out = parent.segment.model.isOutControl(parent.index, index);
 
             line = new Line();
             line.setStroke(Paint.valueOf("grey"));
-            line.setStartX(parent.point.getCenterX());
-            line.setStartY(parent.point.getCenterY());
-            line.setEndX(controlX);
-            line.setEndY(controlY);
 
-            control = new Circle(controlX, controlY, 4);
+            control = new Circle(4);
             control.setFill(Color.valueOf("blue"));
 
-            parent.bind((bindX, bindY) -> {
-                line.setStartX(bindX);
-                line.setStartY(bindY);
-                line.setEndX(bindX + offsetX);
-                line.setEndY(bindY + offsetY);
-                if (parent.smooth) {
-                    updatePosition(bindX + offsetX, bindY + offsetY);
-                } else {
-                    updatePosition(bindX, bindY);
-                }
-            });
+            update();
 
             control.setOnMouseDragged(event -> {
                 if (Main.this.selectedTool == CurveTool.SELECT) {
-                    Main.this.isSaved = false;
-                    double x = event.getX();
-                    double y = event.getY();
-
-                    move(x, y, x - parent.point.getCenterX(), y - parent.point.getCenterY());
-
-                    if (parent.controlPoints.size() == 2) {
-                        ControlPoint other = parent.controlPoints.get(0);
-
-                        if (other == this) {
-                            other = parent.controlPoints.get(1);
-                        }
-
-                        double distance = Math.sqrt(other.offsetX * other.offsetX + other.offsetY * other.offsetY);
-                        double angle = Math.atan2(offsetY, offsetX) + Math.PI;
-                        double otherOffsetX = distance * Math.cos(angle);
-                        double otherOffsetY = distance * Math.sin(angle);
-
-                        other.move(parent.point.getCenterX() + otherOffsetX, parent.point.getCenterY() + otherOffsetY, otherOffsetX, otherOffsetY);
-                    }
+                    Point2D position = Main.this.snap(event.getX(), event.getY(), parent.segment.model, parent.index);
+                    Main.this.queueDrag(this, position.getX(), position.getY());
+                    event.consume();
                 }
             });
 
             control.setOnMousePressed(event -> {
                 if (Main.this.selectedTool == CurveTool.SELECT) {
                     Main.this.setPointSelection(parent);
+                    dragStart = parent.segment.model.getOffsets(parent.index);
+                    event.consume();
                 }
             });
-        }
 
-        public void add() {
-            Main.this.canvas.getChildren().addAll(line, control);
-        }
+            control.setOnMouseReleased(event -> {
+                Main.this.finishDrag();
+                if (dragStart != null) {
+                    double[] offsets = parent.segment.model.getOffsets(parent.index);
+                    if (!Arrays.equals(dragStart, offsets)) {
+                        Main.this.record(new ControlCommand(parent.segment.model, parent.index, dragStart, offsets));
+                    }
+                    dragStart = null;
+                }
+            });
 
-        public void remove() {
-            Main.this.canvas.getChildren().removeAll(line, control);
+            control.setOnMouseClicked(event -> {
+                if (Main.this.selectedTool == CurveTool.SELECT) {
+                    event.consume();
+                }
+            });
         }
 
-        public void bind(CurvePointBind callback) {
-            callbacks.add(callback);
+        @Override
+        public void drag(double x, double y) {
+            Main.this.markEdited();
+            parent.segment.model.moveControl(parent.index, out, x, y);
+            Main.this.journal.controlMoved(parent.segment.model, parent.index, index, x, y);
         }
 
-        public String save() {
-            String data = "%";
-
-            data += line.getStartX() + "%";
-            data += line.getStartY() + "%";
-            data += line.getEndX() + "%";
-            data += line.getEndY() + "%";
-            data += control.getCenterX() + "%";
-            data += control.getCenterY() + "%";
-            data += offsetX + "%";
-            data += offsetY + "%";
-
-            return data;
+        public void update() {
+            SegmentModel model = parent.segment.model;
+            line.setStartX(model.getX(parent.index));
+            line.setStartY(model.getY(parent.index));
+            line.setEndX(model.getHandleX(parent.index, out));
+            line.setEndY(model.getHandleY(parent.index, out));
+            control.setCenterX(model.getControlX(parent.index, out));
+            control.setCenterY(model.getControlY(parent.index, out));
         }
 
-        private void move(double x, double y, double offsetX, double offsetY) {
-            updatePosition(x, y);
-
-            line.setEndX(x);
-            line.setEndY(y);
-
-            this.offsetX = offsetX;
-            this.offsetY = offsetY;
+        public void add() {
+            Main.this.handleLayer.getChildren().addAll(line, control);
         }
 
-        private void updatePosition(double x, double y) {
-            control.setCenterX(x);
-            control.setCenterY(y);
-
-            for (CurvePointBind callback : callbacks) {
-                callback.onChange(x, y);
-            }
+        public void remove() {
+            Main.this.handleLayer.getChildren().removeAll(line, control);
         }
     }
 
-    class CurvePoint {
+    class CurvePoint implements DragTarget {
+        public CurveSegment segment;
+        public int index;
         public Circle point;
         public ArrayList<ControlPoint> controlPoints;
-        public ArrayList<CurvePointBind> callbacks;
-        public boolean smooth;
+        private boolean dragging;
+        private double dragX;
+        private double dragY;
 
-        CurvePoint(double x, double y) {
-            point = new Circle(x, y, 10);
+        CurvePoint(CurveSegment segment, int index) {
+            this.segment = segment;
+            this.index = index;
+
+            point = new Circle(segment.model.getX(index), segment.model.getY(index), 10);
             point.setFill(Color.valueOf("white"));
             point.setStrokeWidth(3);
-            point.setStroke(Color.valueOf("blue"));
+            point.setStroke(Color.valueOf(segment.model.isSmooth(index) ? "blue" : "green"));
 
             point.setOnMouseDragged(event -> {
                 if (Main.this.selectedTool == CurveTool.SELECT) {
-                    Main.this.isSaved = false;
-                    updatePosition(event.getX(), event.getY());
+                    Point2D position = Main.this.snap(event.getX(), event.getY(), segment.model, index);
+                    Main.this.queueDrag(this, position.getX(), position.getY());
+                    event.consume();
                 }
             });
 
             point.setOnMousePressed(event -> {
                 if (Main.this.selectedTool == CurveTool.SELECT) {
                     Main.this.setPointSelection(this);
+                    dragging = true;
+                    dragX = segment.model.getX(index);
+                    dragY = segment.model.getY(index);
+                    event.consume();
+                }
+            });
+
+            point.setOnMouseReleased(event -> {
+                Main.this.finishDrag();
+                if (dragging) {
+                    double x = segment.model.getX(index);
+                    double y = segment.model.getY(index);
+                    if (x != dragX || y != dragY) {
+                        Main.this.record(new MovePointCommand(segment.model, index, dragX, dragY, x, y));
+                    }
+                    dragging = false;
+                }
+            });
+
+            point.setOnMouseClicked(event -> {
+                if (Main.this.selectedTool == CurveTool.SELECT) {
+                    event.consume();
                 }
             });
 
             controlPoints = new ArrayList<>();
-            callbacks = new ArrayList<>();
-            smooth = true;
+
+            for (int i = 0; i < segment.model.getControlCount(index); ++i) {
+                addControlPoint();
+            }
         }
 
         public ControlPoint addControlPoint() {
-            ControlPoint control = new ControlPoint(this);
+            ControlPoint control = new ControlPoint(this, controlPoints.size());
             controlPoints.add(control);
             return control;
         }
 
-        public void add() {
-            Main.this.canvas.getChildren().add(point);
-            if (smooth) {
-                for (ControlPoint controlPoint : controlPoints) {
-                    controlPoint.add();
-                }
+        @Override
+        public void drag(double x, double y) {
+            Main.this.markEdited();
+            segment.model.movePoint(index, x, y);
+            Main.this.journal.pointMoved(segment.model, index, x, y);
+        }
+
+        public void update() {
+            point.setCenterX(segment.model.getX(index));
+            point.setCenterY(segment.model.getY(index));
+            for (ControlPoint controlPoint : controlPoints) {
+                controlPoint.update();
             }
+        }
 
+        public void add() {
+            ArrayList<Node> nodes = new ArrayList<>();
+            collect(nodes);
+            Main.this.handleLayer.getChildren().addAll(nodes);
         }
 
         public void remove() {
-            Main.this.canvas.getChildren().remove(point);
-            if (smooth) {
+            ArrayList<Node> nodes = new ArrayList<>();
+            collect(nodes);
+            Main.this.handleLayer.getChildren().removeAll(nodes);
+        }
+
+        public void collect(Collection<Node> nodes) {
+            nodes.add(point);
+            if (segment.model.isSmooth(index)) {
                 for (ControlPoint controlPoint : controlPoints) {
-                    controlPoint.remove();
+                    nodes.add(controlPoint.line);
+                    nodes.add(controlPoint.control);
                 }
             }
         }
 
-        public void bind(CurvePointBind callback) {
-            callbacks.add(callback);
-        }
-
         public void focus() {
             point.setFill(Color.valueOf("lightgreen"));
         }
@@ -274,8 +375,11 @@ public class Main extends Application {
         }
 
         public void toggle() {
-            smooth = !smooth;
-            Main.this.isSaved = false;
+            segment.toggle(index);
+        }
+
+        public void updateSmooth() {
+            boolean smooth = segment.model.isSmooth(index);
 
             if (smooth) {
                 point.setStroke(Color.valueOf("blue"));
@@ -283,277 +387,553 @@ public class Main extends Application {
                 point.setStroke(Color.valueOf("green"));
             }
 
-            for (ControlPoint controlPoint : controlPoints) {
-                if (smooth) {
-                    controlPoint.updatePosition(point.getCenterX() + controlPoint.offsetX, point.getCenterY() + controlPoint.offsetY);
-                    controlPoint.add();
-                } else {
-                    controlPoint.updatePosition(point.getCenterX(), point.getCenterY());
-                    controlPoint.remove();
+            if (point.getParent() != null) {
+                for (ControlPoint controlPoint : controlPoints) {
+                    if (smooth) {
+                        controlPoint.add();
+                    } else {
+                        controlPoint.remove();
+                    }
                 }
             }
         }
-
-        public String save() {
-            StringBuilder data = new StringBuilder(":");
-
-            data.append(point.getCenterX()).append(":");
-            data.append(point.getCenterY()).append(":");
-            data.append(smooth).append(":");
-
-            for (ControlPoint control: controlPoints) {
-                data.append(control.save()).append(":");
-            }
-
-            return data.toString();
-        }
-
-        private void updatePosition(double x, double y) {
-            point.setCenterX(x);
-            point.setCenterY(y);
-
-            for (CurvePointBind callback : callbacks) {
-                callback.onChange(x, y);
-            }
-        }
     }
 
     class CurveSegment {
+        public SegmentModel model;
         public ArrayList<CurvePoint> points;
         public ArrayList<CubicCurve> curves;
-        public Color color;
-        public CurveStyle style;
-        public int thickness;
+        public CurvePointBind binding;
+        public boolean attached;
 
         public CurveSegment() {
-            points = new ArrayList<>();
-            curves = new ArrayList<>();
-            color = null;
-            style = null;
-            thickness = 0;
+            this(Main.this.document.createSegment());
+            attach();
         }
 
-        public CurveSegment(String data) {
-            this();
+        public CurveSegment(SegmentModel model) {
+            this.model = model;
+            points = new ArrayList<>();
+            curves = new ArrayList<>();
+            attached = false;
 
-            ArrayList<String> parts = new ArrayList<>(Arrays.asList(data.split("\\|")));
-            parts.removeIf(String::isEmpty);
+            binding = point -> {
+                if (!Main.this.canvasRendering) {
+                    if (point > 0 && point - 1 < curves.size()) {
+                        updateCurve(point - 1);
+                    }
+                    if (point < curves.size()) {
+                        updateCurve(point);
+                    }
+                }
+                Main.this.requestRender();
+                if (point < points.size()) {
+                    points.get(point).update();
+                }
+            };
+            model.bind(binding);
+        }
 
-            color = Color.valueOf(parts.get(0));
-            style = CurveStyle.valueOf(parts.get(1));
-            thickness = Integer.parseInt(parts.get(2));
+        public void add(double x, double y) {
+            if (model.size > 0 && model.style == null) {
+                model.color = toModelColor(Main.this.selectedColor);
+                model.style = Main.this.selectedStyle;
+                model.thickness = Main.this.selectedThickness;
+            }
 
-            for (int i = 3; i < parts.size(); ++i) {
-                ArrayList<String> pointData = new ArrayList<>(Arrays.asList(parts.get(i).split(":")));
-                pointData.removeIf(String::isEmpty);
+            model.add(x, y);
 
-                add(Double.parseDouble(pointData.get(0)), Double.parseDouble(pointData.get(1)));
+            if (points.size() > 0) {
+                CurvePoint previous = points.get(points.size() - 1);
+                previous.addControlPoint();
+                previous.update();
             }
 
-            for (int i = 3; i < parts.size(); ++i) {
-                ArrayList<String> pointData = new ArrayList<>(Arrays.asList(parts.get(i).split(":")));
-                pointData.removeIf(String::isEmpty);
+            points.add(new CurvePoint(this, points.size()));
 
-                CurvePoint current = points.get(i - 3);
-
-                if (!Boolean.parseBoolean(pointData.get(2))) {
-                    current.toggle();
-                }
+            if (points.size() > 1) {
+                addCurve(points.size() - 2);
+            }
 
-                for (int j = 3; j < pointData.size(); ++j) {
-                    ArrayList<String> controlData = new ArrayList<>(Arrays.asList(pointData.get(j).split("%")));
-                    controlData.removeIf(String::isEmpty);
+            Main.this.requestRender();
+        }
 
-                    ControlPoint currentControl = current.controlPoints.get(j - 3);
+        public void append(double x, double y) {
+            add(x, y);
 
-                    currentControl.offsetX = Double.parseDouble(controlData.get(6));
-                    currentControl.offsetY = Double.parseDouble(controlData.get(7));
-                    currentControl.line.setStartX(Double.parseDouble(controlData.get(0)));
-                    currentControl.line.setStartY(Double.parseDouble(controlData.get(1)));
-                    currentControl.line.setEndX(Double.parseDouble(controlData.get(2)));
-                    currentControl.line.setEndY(Double.parseDouble(controlData.get(3)));
-                    currentControl.updatePosition(Double.parseDouble(controlData.get(4)), Double.parseDouble(controlData.get(5)));
+            if (points.size() > 1) {
+                CurvePoint previous = points.get(points.size() - 2);
+                if (model.isSmooth(previous.index)) {
+                    previous.controlPoints.get(previous.controlPoints.size() - 1).add();
                 }
             }
+
+            points.get(points.size() - 1).add();
         }
 
-        public void add(double x, double y) {
-            CurvePoint current = new CurvePoint(x, y);
+        public void removeLast() {
+            CurvePoint last = points.remove(points.size() - 1);
+            last.remove();
 
             if (points.size() > 0) {
-                if (this.color == null) {
-                    this.color = Main.this.selectedColor;
-                    this.style = Main.this.selectedStyle;
-                    this.thickness = Main.this.selectedThickness;
+                int span = points.size() - 1;
+
+                if (curves.size() > span) {
+                    Main.this.curveLayer.getChildren().remove(curves.remove(span));
                 }
 
                 CurvePoint previous = points.get(points.size() - 1);
-                ControlPoint previousControl = previous.addControlPoint();
-                ControlPoint currentControl = current.addControlPoint();
-
-                CubicCurve cubic = new CubicCurve();
-                cubic.setFill(null);
-                cubic.setStrokeWidth(this.thickness);
-                cubic.setStroke(this.color);
-                cubic.setStartX(previous.point.getCenterX());
-                cubic.setStartY(previous.point.getCenterY());
-                cubic.setControlX1(previousControl.control.getCenterX());
-                cubic.setControlY1(previousControl.control.getCenterY());
-                cubic.setControlX2(currentControl.control.getCenterX());
-                cubic.setControlY2(currentControl.control.getCenterY());
-                cubic.setEndX(x);
-                cubic.setEndY(y);
-
-                changeLineStyle(cubic);
-
-                previousControl.bind((bindX, bindY) -> {
-                    cubic.setControlX1(bindX);
-                    cubic.setControlY1(bindY);
-                });
-
-                currentControl.bind((bindX, bindY) -> {
-                    cubic.setControlX2(bindX);
-                    cubic.setControlY2(bindY);
-                });
-
-                previous.bind((bindX, bindY) -> {
-                    cubic.setStartX(bindX);
-                    cubic.setStartY(bindY);
-                });
-
-                current.bind((bindX, bindY) -> {
-                    cubic.setEndX(bindX);
-                    cubic.setEndY(bindY);
-                });
-
-                cubic.setOnMouseClicked(event -> {
-                    if (Main.this.selectedTool == CurveTool.SELECT) {
-                        Main.this.setSelection(this);
-                    } else if (Main.this.selectedTool == CurveTool.ERASE) {
-                        Main.this.removeCurve(this);
-                    }
-                });
-
-                Main.this.canvas.getChildren().add(cubic);
-                curves.add(cubic);
+                ControlPoint control = previous.controlPoints.remove(previous.controlPoints.size() - 1);
+                if (model.isSmooth(previous.index)) {
+                    control.remove();
+                }
             }
 
-            points.add(current);
+            model.removeLast();
+            Main.this.requestRender();
         }
 
-        public void render() {
-            for (CurvePoint current : points) {
-                current.remove();
-                current.add();
+        public void toggle(int index) {
+            model.toggle(index);
+            Main.this.markEdited();
+            Main.this.journal.pointToggled(model, index);
+
+            if (index < points.size()) {
+                points.get(index).updateSmooth();
             }
         }
 
-        public void refresh() {
-            Main.this.isSaved = false;
+        public void restyle() {
+            Color color = toColor(model.color);
             for (CubicCurve curve : curves) {
-                curve.setStroke(this.color);
-                curve.setStrokeWidth(this.thickness);
+                curve.setStroke(color);
+                curve.setStrokeWidth(model.thickness);
                 changeLineStyle(curve);
             }
         }
 
-        public void focus() {
+        public void reshape() {
+            for (int i = 0; i < curves.size(); ++i) {
+                updateCurve(i);
+            }
             for (CurvePoint point : points) {
-                point.add();
+                point.update();
             }
         }
 
-        public void removeFocus() {
+        public void focus() {
+            if (points.isEmpty()) {
+                for (int i = 0; i < model.size; ++i) {
+                    points.add(new CurvePoint(this, i));
+                }
+            }
+
+            ArrayList<Node> nodes = new ArrayList<>();
             for (CurvePoint point : points) {
-                point.remove();
+                point.collect(nodes);
             }
+            Main.this.handleLayer.getChildren().addAll(nodes);
         }
 
-        public void clear() {
+        public void removeFocus() {
+            HashSet<Node> nodes = new HashSet<>();
             for (CurvePoint point : points) {
-                point.remove();
+                point.collect(nodes);
             }
+            Main.this.handleLayer.getChildren().removeAll(nodes);
+            points.clear();
+        }
 
-            for (CubicCurve curve: curves) {
-                Main.this.canvas.getChildren().remove(curve);
+        public void attach() {
+            if (!attached && !Main.this.canvasRendering) {
+                attached = true;
+                for (int i = 0; i < model.getSpanCount(); ++i) {
+                    addCurve(i);
+                }
             }
+        }
 
+        public void detach() {
+            attached = false;
             curves.clear();
-            points.clear();
         }
 
-        public String save() {
-            StringBuilder data = new StringBuilder("|");
+        public void clear() {
+            removeFocus();
+            Main.this.curveLayer.getChildren().removeAll(new HashSet<>(curves));
+            model.unbind(binding);
+            curves.clear();
+            attached = false;
+            Main.this.requestRender();
+        }
 
-            data.append(color).append("|");
-            data.append(style).append("|");
-            data.append(thickness).append("|");
+        private void addCurve(int span) {
+            if (attached) {
+                CubicCurve cubic = new CubicCurve();
+                cubic.setFill(null);
+                cubic.setMouseTransparent(true);
+                cubic.setStrokeWidth(model.thickness);
+                cubic.setStroke(toColor(model.color));
+                curves.add(cubic);
+                updateCurve(span);
+                changeLineStyle(cubic);
 
-            for (CurvePoint point : points) {
-                data.append(point.save()).append("|");
+                Main.this.curveLayer.getChildren().add(cubic);
             }
+        }
 
-            return data.toString();
+        private void updateCurve(int span) {
+            CubicCurve cubic = curves.get(span);
+
+            cubic.setStartX(model.getX(span));
+            cubic.setStartY(model.getY(span));
+            cubic.setControlX1(model.getOutX(span));
+            cubic.setControlY1(model.getOutY(span));
+            cubic.setControlX2(model.getInX(span + 1));
+            cubic.setControlY2(model.getInY(span + 1));
+            cubic.setEndX(model.getX(span + 1));
+            cubic.setEndY(model.getY(span + 1));
         }
 
         private void changeLineStyle(CubicCurve cubic) {
             cubic.getStrokeDashArray().clear();
-            if (this.style == CurveStyle.DOTTED) {
-                if (this.thickness >= 15) {
-                    cubic.getStrokeDashArray().addAll(2d, 28d);
-                } else {
-                    cubic.getStrokeDashArray().addAll(2d, 14d);
-                }
-            } else if (this.style == CurveStyle.DASHED) {
-                if (this.thickness >= 15) {
-                    cubic.getStrokeDashArray().addAll(25d, 30d);
-                } else {
-                    cubic.getStrokeDashArray().addAll(25d, 20d);
-                }
-            } else if (this.style == CurveStyle.COMBINED) {
-                if (this.thickness >= 15) {
-                    cubic.getStrokeDashArray().addAll(25d, 30d, 5d, 30d);
-                } else {
-                    cubic.getStrokeDashArray().addAll(25d, 20d, 5d, 20d);
-                }
+            for (double dash : SegmentModel.getDashArray(model.style, model.thickness)) {
+                cubic.getStrokeDashArray().add(dash);
+            }
+        }
+    }
+
+    class PenPointCommand implements EditCommand {
+        private CurveSegment segment;
+        private double x;
+        private double y;
+        private double[] startOffsets;
+        private double[] endOffsets;
+
+        PenPointCommand(CurveSegment segment) {
+            this.segment = segment;
+            x = segment.model.getX(segment.model.size - 1);
+            y = segment.model.getY(segment.model.size - 1);
+        }
+
+        @Override
+        public void undo() {
+            int size = segment.model.size;
+            if (size > 1) {
+                startOffsets = segment.model.getOffsets(size - 2);
+                endOffsets = segment.model.getOffsets(size - 1);
+            }
+            segment.removeLast();
+        }
+
+        @Override
+        public void redo() {
+            segment.append(x, y);
+            int size = segment.model.size;
+            if (size > 1) {
+                segment.model.setOffsets(size - 2, startOffsets);
+                segment.model.setOffsets(size - 1, endOffsets);
+            }
+        }
+    }
+
+    class AddSegmentCommand implements EditCommand {
+        private SegmentModel segment;
+
+        AddSegmentCommand(SegmentModel segment) {
+            this.segment = segment;
+        }
+
+        @Override
+        public void undo() {
+            Main.this.removeSegment(Main.this.views.get(segment));
+        }
+
+        @Override
+        public void redo() {
+            Main.this.addSegment(new CurveSegment(segment));
+        }
+    }
+
+    class RemoveSegmentCommand implements EditCommand {
+        private SegmentModel segment;
+
+        RemoveSegmentCommand(SegmentModel segment) {
+            this.segment = segment;
+        }
+
+        @Override
+        public void undo() {
+            Main.this.addSegment(new CurveSegment(segment));
+        }
+
+        @Override
+        public void redo() {
+            Main.this.removeSegment(Main.this.views.get(segment));
+        }
+    }
+
+    class MovePointCommand implements EditCommand {
+        private SegmentModel segment;
+        private int point;
+        private double fromX;
+        private double fromY;
+        private double toX;
+        private double toY;
+
+        MovePointCommand(SegmentModel segment, int point, double fromX, double fromY, double toX, double toY) {
+            this.segment = segment;
+            this.point = point;
+            this.fromX = fromX;
+            this.fromY = fromY;
+            this.toX = toX;
+            this.toY = toY;
+        }
+
+        @Override
+        public void undo() {
+            apply(fromX, fromY);
+        }
+
+        @Override
+        public void redo() {
+            apply(toX, toY);
+        }
+
+        private void apply(double x, double y) {
+            segment.movePoint(point, x, y);
+            Main.this.journal.pointMoved(segment, point, x, y);
+        }
+    }
+
+    class ControlCommand implements EditCommand {
+        private SegmentModel segment;
+        private int point;
+        private double[] before;
+        private double[] after;
+
+        ControlCommand(SegmentModel segment, int point, double[] before, double[] after) {
+            this.segment = segment;
+            this.point = point;
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        public void undo() {
+            apply(before);
+        }
+
+        @Override
+        public void redo() {
+            apply(after);
+        }
+
+        private void apply(double[] offsets) {
+            segment.setOffsets(point, offsets);
+            for (int i = 0; i < segment.getControlCount(point); ++i) {
+                Main.this.journal.controlOffsetChanged(segment, point, i, offsets[i * 2], offsets[i * 2 + 1]);
+            }
+        }
+    }
+
+    class ToggleCommand implements EditCommand {
+        private SegmentModel segment;
+        private int point;
+
+        ToggleCommand(SegmentModel segment, int point) {
+            this.segment = segment;
+            this.point = point;
+        }
+
+        @Override
+        public void undo() {
+            Main.this.views.get(segment).toggle(point);
+        }
+
+        @Override
+        public void redo() {
+            undo();
+        }
+    }
+
+    class StyleCommand implements EditCommand {
+        private ArrayList<SegmentModel> segments;
+        private int[] oldColors;
+        private CurveStyle[] oldStyles;
+        private int[] oldThicknesses;
+        private int[] newColors;
+        private CurveStyle[] newStyles;
+        private int[] newThicknesses;
+
+        StyleCommand(ArrayList<SegmentModel> segments) {
+            this.segments = segments;
+            oldColors = new int[segments.size()];
+            oldStyles = new CurveStyle[segments.size()];
+            oldThicknesses = new int[segments.size()];
+            newColors = new int[segments.size()];
+            newStyles = new CurveStyle[segments.size()];
+            newThicknesses = new int[segments.size()];
+            capture(oldColors, oldStyles, oldThicknesses);
+        }
+
+        public void capture() {
+            capture(newColors, newStyles, newThicknesses);
+        }
+
+        @Override
+        public void undo() {
+            apply(oldColors, oldStyles, oldThicknesses);
+        }
+
+        @Override
+        public void redo() {
+            apply(newColors, newStyles, newThicknesses);
+        }
+
+        private void capture(int[] colors, CurveStyle[] styles, int[] thicknesses) {
+            for (int i = 0; i < segments.size(); ++i) {
+                colors[i] = segments.get(i).color;
+                styles[i] = segments.get(i).style;
+                thicknesses[i] = segments.get(i).thickness;
+            }
+        }
+
+        private void apply(int[] colors, CurveStyle[] styles, int[] thicknesses) {
+            for (int i = 0; i < segments.size(); ++i) {
+                segments.get(i).color = colors[i];
+                segments.get(i).style = styles[i];
+                segments.get(i).thickness = thicknesses[i];
             }
+            Main.this.refreshSegments(segments);
+        }
+    }
+
+    class TransformCommand implements EditCommand {
+        private ArrayList<SegmentModel> segments;
+        private SegmentTransform transform;
+
+        TransformCommand(ArrayList<SegmentModel> segments, SegmentTransform transform) {
+            this.segments = segments;
+            this.transform = transform;
+        }
+
+        @Override
+        public void undo() {
+            Main.this.transformSegments(segments, transform.inverse());
+        }
+
+        @Override
+        public void redo() {
+            Main.this.transformSegments(segments, transform);
         }
     }
 
     @Override
-    public void start(Stage stage) throws Exception {
+    public void init() {
         selectedTool = CurveTool.NONE;
         selectedThickness = 5;
         selectedStyle = CurveStyle.NORMAL;
         selectedColor = Color.valueOf("black");
-        colorPicker = new ColorPicker();
         canvas = new Pane();
-        random = new Random();
+        curveLayer = new Pane();
+        handleLayer = new Pane();
+        document = new CurveDocument();
         segments = new ArrayList<>();
+        views = new HashMap<>();
+        attached = new HashSet<>();
         currentSegment = new CurveSegment();
         currentFocus = null;
+        selection = new LinkedHashSet<>();
+        selectionOutline = new Path();
+        selectionOutline.setStroke(Color.valueOf("dodgerblue"));
+        selectionOutline.setStrokeWidth(1);
+        selectionOutline.setMouseTransparent(true);
+        marquee = new Rectangle();
+        marquee.setFill(Color.valueOf("#1e90ff22"));
+        marquee.setStroke(Color.valueOf("dodgerblue"));
+        marquee.setMouseTransparent(true);
+        marquee.setVisible(false);
         currentPoint = null;
-        thicknessButtons = new ArrayList<>();
-        styleButtons = new ArrayList<>();
-        toolButtons = new ArrayList<>();
         isSaved = true;
+        revision = 0;
+        saveExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "curve-saver"));
+        journal = new EditJournal(new File(System.getProperty("user.home"), ".curve-editor"));
+        journalFlushed = 0;
+        history = new EditHistory();
         clipboard = null;
         copyOffset = 40;
+        flattening = new FlatteningCache();
+        renderer = new CanvasRenderer(flattening);
+        index = new SpanIndex(flattening);
+        snapIndex = new SnapIndex();
+        pointSnapping = true;
+        gridSnapping = false;
+        zoom = 1;
+        zoomScale = new Scale(1, 1);
+        canvasRendering = false;
+        renderPending = false;
+        loadTask = null;
+        loadMetrics = null;
+        dragTarget = null;
+        dragMetrics = new DragMetrics();
+
+        curveLayer.setPickOnBounds(false);
+        handleLayer.setPickOnBounds(false);
+        handleLayer.getChildren().addAll(selectionOutline, marquee);
+        canvas.getChildren().addAll(curveLayer, handleLayer);
+        canvas.getTransforms().add(zoomScale);
+        zoomGroup = new Group(canvas);
+    }
+
+    @Override
+    public void stop() {
+        cancelLoad();
+        journal.close();
+        saveExecutor.shutdown();
+    }
+
+    @Override
+    public void start(Stage stage) throws Exception {
+        colorPicker = new ColorPicker();
+        thicknessButtons = new ArrayList<>();
+        styleButtons = new ArrayList<>();
+        toolButtons = new ArrayList<>();
         labels = new ArrayList<>();
 
         Menu menuFile = new Menu("File");
         Menu menuEdit = new Menu("Edit");
+        Menu menuView = new Menu("View");
+        Menu menuArrange = new Menu("Arrange");
         Menu menuHelp = new Menu("Help");
 
         MenuItem newCommand = new MenuItem("New");
         MenuItem loadCommand = new MenuItem("Load");
         MenuItem saveCommand = new MenuItem("Save");
+        MenuItem exportCommand = new MenuItem("Export...");
         MenuItem quitCommand = new MenuItem("Quit");
         MenuItem aboutCommand = new MenuItem("About");
 
+        undoCommand = new MenuItem("Undo");
+        redoCommand = new MenuItem("Redo");
         cutCommand = new MenuItem("Cut");
         copyCommand = new MenuItem("Copy");
         pasteCommand = new MenuItem("Paste");
+        MenuItem crossingCommand = new MenuItem("Select Crossing Curves");
+
+        CheckMenuItem canvasCommand = new CheckMenuItem("Canvas Rendering");
+        CheckMenuItem pointSnapCommand = new CheckMenuItem("Snap to Points");
+        CheckMenuItem gridSnapCommand = new CheckMenuItem("Snap to Grid");
+        MenuItem zoomInCommand = new MenuItem("Zoom In");
+        MenuItem zoomOutCommand = new MenuItem("Zoom Out");
+        MenuItem zoomResetCommand = new MenuItem("Actual Size");
+
+        MenuItem rotateRightCommand = new MenuItem("Rotate Right");
+        MenuItem rotateLeftCommand = new MenuItem("Rotate Left");
+        MenuItem flipHorizontalCommand = new MenuItem("Flip Horizontal");
+        MenuItem flipVerticalCommand = new MenuItem("Flip Vertical");
+        MenuItem scaleUpCommand = new MenuItem("Scale Up");
+        MenuItem scaleDownCommand = new MenuItem("Scale Down");
 
         newCommand.setOnAction(event -> {
             if (selectedTool == CurveTool.PEN) {
@@ -562,11 +942,12 @@ public class Main extends Application {
                 clearSelection();
             }
             promptShouldSave(stage);
-            for (CurveSegment curve : segments) {
-                curve.clear();
-            }
-            segments.clear();
-            isSaved = true;
+            cancelLoad();
+            clearSegments();
+            history.clear();
+            updateHistoryCommands();
+            journal.compact(document.snapshot());
+            markSaved();
         });
 
         loadCommand.setOnAction(event -> {
@@ -579,14 +960,15 @@ public class Main extends Application {
             FileChooser fileChooser = new FileChooser();
             fileChooser.setTitle("Load Curve");
             fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Curve File (*.curve)", "*.curve"));
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("SVG Image (*.svg)", "*.svg"));
             File file = fileChooser.showOpenDialog(stage);
             if (file != null) {
-                for (CurveSegment curve : segments) {
-                    curve.clear();
-                }
-                segments.clear();
+                cancelLoad();
+                clearSegments();
+                history.clear();
+                updateHistoryCommands();
                 loadCurves(file);
-                isSaved = true;
+                markSaved();
             }
         });
 
@@ -599,7 +981,17 @@ public class Main extends Application {
             promptSave(stage);
         });
 
+        exportCommand.setOnAction(event -> {
+            if (selectedTool == CurveTool.PEN) {
+                commitSegment();
+            } else if (selectedTool == CurveTool.SELECT) {
+                clearSelection();
+            }
+            promptExport(stage);
+        });
+
         quitCommand.setOnAction(event -> {
+            cancelLoad();
             promptShouldSave(stage);
             Platform.exit();
         });
@@ -613,48 +1005,72 @@ public class Main extends Application {
         });
 
         cutCommand.setOnAction(event -> {
-            if (currentFocus != null) {
+            if (!selection.isEmpty()) {
                 copyOffset = 0;
-                isSaved = false;
-                CurveSegment curve = currentFocus;
-                clearSelection();
-                clipboard = curve.save();
-                curve.clear();
-                segments.remove(curve);
-                pasteCommand.setDisable(false);
+                copySelection();
+                removeSelection();
             }
         });
 
         copyCommand.setOnAction(event -> {
-            if (currentFocus != null) {
+            if (!selection.isEmpty()) {
                 copyOffset = 40;
-                clipboard = currentFocus.save();
-                pasteCommand.setDisable(false);
+                copySelection();
             }
         });
 
         pasteCommand.setOnAction(event -> {
             if (clipboard != null) {
-                isSaved = false;
-                CurveSegment copy = new CurveSegment(clipboard);
-                segments.add(copy);
-                for (CurvePoint point : copy.points) {
-                    point.updatePosition(point.point.getCenterX() + copyOffset, point.point.getCenterY() + copyOffset);
-                }
+                paste(copyOffset, copyOffset);
                 copyOffset += 40;
             }
         });
 
+        crossingCommand.setOnAction(event -> selectCrossings());
+
+        undoCommand.setOnAction(event -> undo());
+        redoCommand.setOnAction(event -> redo());
+
+        canvasCommand.setOnAction(event -> setCanvasRendering(canvasCommand.isSelected()));
+        pointSnapCommand.setOnAction(event -> pointSnapping = pointSnapCommand.isSelected());
+        gridSnapCommand.setOnAction(event -> gridSnapping = gridSnapCommand.isSelected());
+        pointSnapCommand.setSelected(pointSnapping);
+        gridSnapCommand.setSelected(gridSnapping);
+        zoomInCommand.setOnAction(event -> zoomViewport(zoom * ZOOM_STEP));
+        zoomOutCommand.setOnAction(event -> zoomViewport(zoom / ZOOM_STEP));
+        zoomResetCommand.setOnAction(event -> zoomViewport(1));
+        rotateRightCommand.setOnAction(event -> transformSelection((x, y) -> SegmentTransform.rotation(90, x, y)));
+        rotateLeftCommand.setOnAction(event -> transformSelection((x, y) -> SegmentTransform.rotation(-90, x, y)));
+        flipHorizontalCommand.setOnAction(event -> transformSelection((x, y) -> SegmentTransform.scaling(-1, 1, x, y)));
+        flipVerticalCommand.setOnAction(event -> transformSelection((x, y) -> SegmentTransform.scaling(1, -1, x, y)));
+        scaleUpCommand.setOnAction(event -> transformSelection((x, y) -> SegmentTransform.scaling(SCALE_STEP, SCALE_STEP, x, y)));
+        scaleDownCommand.setOnAction(event -> transformSelection((x, y) -> SegmentTransform.scaling(1 / SCALE_STEP, 1 / SCALE_STEP, x, y)));
+
+        undoCommand.setAccelerator(KeyCombination.keyCombination("Shortcut+Z"));
+        redoCommand.setAccelerator(KeyCombination.keyCombination("Shortcut+Y"));
+        zoomInCommand.setAccelerator(KeyCombination.keyCombination("Shortcut+Equals"));
+        zoomOutCommand.setAccelerator(KeyCombination.keyCombination("Shortcut+Minus"));
+        zoomResetCommand.setAccelerator(KeyCombination.keyCombination("Shortcut+0"));
+        rotateRightCommand.setAccelerator(KeyCombination.keyCombination("Shortcut+R"));
+        rotateLeftCommand.setAccelerator(KeyCombination.keyCombination("Shortcut+Shift+R"));
+        scaleUpCommand.setAccelerator(KeyCombination.keyCombination("Shortcut+Shift+Equals"));
+        scaleDownCommand.setAccelerator(KeyCombination.keyCombination("Shortcut+Shift+Minus"));
+        undoCommand.setDisable(true);
+        redoCommand.setDisable(true);
         cutCommand.setDisable(true);
         copyCommand.setDisable(true);
         pasteCommand.setDisable(true);
 
-        menuFile.getItems().addAll(newCommand, loadCommand, saveCommand, quitCommand);
-        menuEdit.getItems().addAll(cutCommand, copyCommand, pasteCommand);
+        menuFile.getItems().addAll(newCommand, loadCommand, saveCommand, exportCommand, quitCommand);
+        menuEdit.getItems().addAll(undoCommand, redoCommand, new SeparatorMenuItem(), cutCommand, copyCommand, pasteCommand, new SeparatorMenuItem(), crossingCommand);
+        menuView.getItems().addAll(zoomInCommand, zoomOutCommand, zoomResetCommand, new SeparatorMenuItem(), pointSnapCommand, gridSnapCommand,
+                new SeparatorMenuItem(), canvasCommand);
+        menuArrange.getItems().addAll(rotateRightCommand, rotateLeftCommand, new SeparatorMenuItem(), flipHorizontalCommand, flipVerticalCommand,
+                new SeparatorMenuItem(), scaleUpCommand, scaleDownCommand);
         menuHelp.getItems().addAll(aboutCommand);
 
         MenuBar menuBar = new MenuBar();
-        menuBar.getMenus().addAll(menuFile, menuEdit, menuHelp);
+        menuBar.getMenus().addAll(menuFile, menuEdit, menuView, menuArrange, menuHelp);
 
         ImageView penImage = new ImageView(new Image("/pen.png", 80, 80, true, true));
         ImageView selectImage = new ImageView(new Image("/select.png", 80, 80, true, true));
@@ -662,7 +1078,10 @@ public class Main extends Application {
         ImageView eraseImage = new ImageView(new Image("/erase.png", 80, 80, true, true));
 
         pointButton = new Button("", pointImage);
-        pointButton.setOnAction(event -> currentPoint.toggle());
+        pointButton.setOnAction(event -> {
+            currentPoint.toggle();
+            record(new ToggleCommand(currentPoint.segment.model, currentPoint.index));
+        });
         pointButton.setDisable(true);
 
         Button penButton = new Button("", penImage);
@@ -821,25 +1240,134 @@ public class Main extends Application {
         sideBar.getChildren().addAll(createVSpacer(), toolsContainer, createVSpacer(), separator, createVSpacer(), properties, createVSpacer(), createVSpacer());
         sideBar.setBorder(new Border(new BorderStroke(Color.BLACK, Color.BLACK, Color.BLACK, Color.BLACK, BorderStrokeStyle.NONE, BorderStrokeStyle.SOLID, BorderStrokeStyle.NONE, BorderStrokeStyle.NONE, CornerRadii.EMPTY, new BorderWidths(1), Insets.EMPTY)));
 
-        ScrollPane scrollPane = new ScrollPane(canvas);
-        scrollPane.setOnMouseClicked(event -> canvasClick(event.getX(), event.getY()));
+        scrollPane = new ScrollPane(zoomGroup);
+        scrollPane.setOnMouseClicked(event -> {
+            if (event.getButton() == MouseButton.MIDDLE || !event.isStillSincePress()) {
+                return;
+            }
+            Point2D position = canvas.sceneToLocal(event.getSceneX(), event.getSceneY());
+            canvasClick(position.getX(), position.getY(), event.isShiftDown());
+        });
         scrollPane.setStyle("-fx-background: #FFFFFF; -fx-background-color: transparent;");
-
-        BorderPane borderPane = new BorderPane();
-        borderPane.setCenter(scrollPane);
-        borderPane.setLeft(sideBar);
-        borderPane.setTop(menuBar);
-
-        stage.addEventHandler(KeyEvent.KEY_RELEASED, (KeyEvent event) -> {
-            if (event.getCode() == KeyCode.ESCAPE) {
-                if (selectedTool == CurveTool.PEN) {
-                    commitSegment();
-                } else if (selectedTool == CurveTool.SELECT) {
-                    clearSelection();
+        scrollPane.viewportBoundsProperty().addListener(event -> requestRender());
+        scrollPane.addEventFilter(ScrollEvent.SCROLL, event -> {
+            if (event.isShortcutDown() && event.getDeltaY() != 0) {
+                Point2D position = canvas.sceneToLocal(event.getSceneX(), event.getSceneY());
+                zoomAt(event.getDeltaY() > 0 ? zoom * ZOOM_STEP : zoom / ZOOM_STEP, position.getX(), position.getY());
+                event.consume();
+            }
+        });
+        scrollPane.setOnMousePressed(event -> {
+            if (selectedTool == CurveTool.SELECT && event.getButton() == MouseButton.PRIMARY) {
+                Point2D position = canvas.sceneToLocal(event.getSceneX(), event.getSceneY());
+                marqueeX = position.getX();
+                marqueeY = position.getY();
+            }
+        });
+        scrollPane.setOnMouseDragged(event -> {
+            if (selectedTool == CurveTool.SELECT && event.isPrimaryButtonDown()) {
+                Point2D position = canvas.sceneToLocal(event.getSceneX(), event.getSceneY());
+                marquee.setX(Math.min(marqueeX, position.getX()));
+                marquee.setY(Math.min(marqueeY, position.getY()));
+                marquee.setWidth(Math.abs(position.getX() - marqueeX));
+                marquee.setHeight(Math.abs(position.getY() - marqueeY));
+                marquee.setStrokeWidth(1 / zoom);
+                marquee.setVisible(true);
+            }
+        });
+        scrollPane.setOnMouseReleased(event -> {
+            if (marquee.isVisible()) {
+                marquee.setVisible(false);
+                Point2D position = canvas.sceneToLocal(event.getSceneX(), event.getSceneY());
+                selectArea(Math.min(marqueeX, position.getX()), Math.min(marqueeY, position.getY()),
+                        Math.max(marqueeX, position.getX()), Math.max(marqueeY, position.getY()), event.isShiftDown());
+            }
+        });
+        scrollPane.addEventFilter(MouseEvent.MOUSE_PRESSED, event -> {
+            if (event.getButton() == MouseButton.MIDDLE) {
+                panX = event.getSceneX();
+                panY = event.getSceneY();
+                panH = scrollPane.getHvalue();
+                panV = scrollPane.getVvalue();
+                event.consume();
+            }
+        });
+        scrollPane.addEventFilter(MouseEvent.MOUSE_DRAGGED, event -> {
+            if (event.isMiddleButtonDown()) {
+                Bounds viewport = scrollPane.getViewportBounds();
+                Bounds content = zoomGroup.getLayoutBounds();
+                double hiddenX = content.getWidth() - viewport.getWidth();
+                double hiddenY = content.getHeight() - viewport.getHeight();
+
+                if (hiddenX > 0) {
+                    scrollPane.setHvalue(clamp(panH - (event.getSceneX() - panX) / hiddenX, 0, 1));
+                }
+                if (hiddenY > 0) {
+                    scrollPane.setVvalue(clamp(panV - (event.getSceneY() - panY) / hiddenY, 0, 1));
+                }
+                event.consume();
+            }
+        });
+
+        AnimationTimer renderTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (loadMetrics != null) {
+                    loadMetrics.frame(now);
+                }
+                if (now - journalFlushed >= JOURNAL_FLUSH_NANOS) {
+                    journalFlushed = now;
+                    try {
+                        if (journal.shouldCompact(now)) {
+                            journal.compact(document.snapshot());
+                        } else {
+                            journal.flush();
+                        }
+                    } catch (IOException exception) {
+                        statusLabel.setText("Crash recovery is not working: " + exception.getMessage());
+                    }
+                }
+                applyDrag();
+                if (renderPending) {
+                    renderPending = false;
+                    render();
+                }
+            }
+        };
+        renderTimer.start();
+
+        statusLabel = new Label("");
+        loadProgress = new ProgressBar(0);
+        loadProgress.setVisible(false);
+        cancelButton = new Button("Cancel");
+        cancelButton.setVisible(false);
+        cancelButton.setOnAction(event -> {
+            cancelLoad();
+            clearSegments();
+            journal.compact(document.snapshot());
+        });
+
+        HBox statusBar = new HBox(statusLabel, createHSpacer(), loadProgress, cancelButton);
+        statusBar.setSpacing(10);
+        statusBar.setPadding(new Insets(4, 10, 4, 10));
+        statusBar.setBorder(new Border(new BorderStroke(Color.BLACK, Color.BLACK, Color.BLACK, Color.BLACK, BorderStrokeStyle.SOLID, BorderStrokeStyle.NONE, BorderStrokeStyle.NONE, BorderStrokeStyle.NONE, CornerRadii.EMPTY, new BorderWidths(1), Insets.EMPTY)));
+
+        BorderPane borderPane = new BorderPane();
+        borderPane.setCenter(scrollPane);
+        borderPane.setLeft(sideBar);
+        borderPane.setTop(menuBar);
+        borderPane.setBottom(statusBar);
+
+        stage.addEventHandler(KeyEvent.KEY_RELEASED, (KeyEvent event) -> {
+            if (event.getCode() == KeyCode.ESCAPE) {
+                if (selectedTool == CurveTool.PEN) {
+                    commitSegment();
+                } else if (selectedTool == CurveTool.SELECT) {
+                    clearSelection();
                 }
             } else if (event.getCode() == KeyCode.DELETE) {
-                if (selectedTool == CurveTool.SELECT && currentFocus != null) {
-                    removeCurve(currentFocus);
+                if (selectedTool == CurveTool.SELECT && !selection.isEmpty()) {
+                    removeSelection();
                 }
             }
         });
@@ -867,84 +1395,399 @@ public class Main extends Application {
         stage.setMaxWidth(1600);
         stage.setTitle("Curve Editor");
         stage.show();
+
+        recoverJournal();
     }
 
     private void saveCurves(File file) {
         if (file != null) {
-            StringBuilder data = new StringBuilder("*");
-            for (CurveSegment curve : segments) {
-                data.append(curve.save()).append("*");
-            }
-            try {
-                FileWriter writer = new FileWriter(file);
-                writer.write(data.toString());
-                writer.close();
-            } catch (Exception exception) {
-                Alert alert = new Alert(Alert.AlertType.ERROR);
-                alert.setHeaderText("An error has occurred!");
-                alert.setContentText(exception.getMessage());
-                alert.showAndWait();
-            }
+            DocumentSnapshot snapshot = document.snapshot();
+            long snapshotRevision = revision;
+            statusLabel.setText("Saving " + file.getName() + "...");
+
+            saveExecutor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    CurveBinaryFormat.write(snapshot, file, false);
+                    long elapsed = (System.nanoTime() - start) / 1_000_000;
+                    Platform.runLater(() -> {
+                        if (revision == snapshotRevision) {
+                            isSaved = true;
+                        }
+                        statusLabel.setText("Saved " + snapshot.segments.size() + " segments to " + file.getName() + " in " + elapsed + " ms");
+                    });
+                } catch (Exception exception) {
+                    Platform.runLater(() -> {
+                        statusLabel.setText("Saving " + file.getName() + " failed.");
+                        Alert alert = new Alert(Alert.AlertType.ERROR);
+                        alert.setHeaderText("An error has occurred!");
+                        alert.setContentText(exception.getMessage());
+                        alert.showAndWait();
+                    });
+                }
+            });
         }
     }
 
     private void loadCurves(File file) {
         if (file != null) {
-            try {
-                String data = Files.readString(file.toPath());
-                ArrayList<String> dataParts = new ArrayList<>(Arrays.asList(data.split("\\*")));
-                dataParts.removeIf(String::isEmpty);
-                for (String datum : dataParts) {
-                    segments.add(new CurveSegment(datum));
+            cancelLoad();
+            // Journal from the cleared document so loaded segments can be replayed as ADD records.
+            journal.compact(document.snapshot());
+
+            LoadMetrics metrics = new LoadMetrics();
+            Semaphore published = new Semaphore(1);
+
+            Task<Void> task = new Task<>() {
+                @Override
+                protected Void call() throws Exception {
+                    try (CurveReader reader = CurveReader.open(file, document.random)) {
+                        ArrayList<SegmentModel> batch = new ArrayList<>();
+                        long flushed = System.nanoTime();
+                        SegmentModel segment;
+
+                        while (!isCancelled() && (segment = reader.next()) != null) {
+                            batch.add(segment);
+
+                            if (System.nanoTime() - flushed >= LOAD_BATCH_NANOS) {
+                                publish(batch);
+                                batch = new ArrayList<>();
+                                flushed = System.nanoTime();
+                                updateProgress(reader.getProgress(), 1);
+                            }
+                        }
+
+                        publish(batch);
+                        published.acquire();
+                    }
+                    return null;
                 }
-            } catch (Exception exception) {
-                Alert alert = new Alert(Alert.AlertType.ERROR);
-                alert.setHeaderText("An error has occurred!");
-                alert.setContentText(exception.getMessage());
-                alert.showAndWait();
-            }
+
+                private void publish(ArrayList<SegmentModel> batch) throws InterruptedException {
+                    published.acquire();
+                    Platform.runLater(() -> {
+                        if (loadTask == this) {
+                            long start = System.nanoTime();
+                            for (SegmentModel segment : batch) {
+                                document.add(segment);
+                                createView(segment);
+                                index.add(segment);
+                                snapIndex.add(segment);
+                                journal.segmentAdded(segment);
+                            }
+                            requestRender();
+                            metrics.batch(batch.size(), System.nanoTime() - start);
+                        }
+                        published.release();
+                    });
+                }
+            };
+
+            task.setOnSucceeded(event -> {
+                if (loadTask == task) {
+                    metrics.finish();
+                    finishLoad(metrics.toString());
+                }
+            });
+
+            task.setOnFailed(event -> {
+                if (loadTask == task) {
+                    metrics.finish();
+                    finishLoad(metrics.toString());
+                    Alert alert = new Alert(Alert.AlertType.ERROR);
+                    alert.setHeaderText("An error has occurred!");
+                    alert.setContentText(task.getException().getMessage());
+                    alert.showAndWait();
+                }
+            });
+
+            loadTask = task;
+            loadMetrics = metrics;
+            loadProgress.progressProperty().bind(task.progressProperty());
+            loadProgress.setVisible(true);
+            cancelButton.setVisible(true);
+            statusLabel.setText("Loading " + file.getName() + "...");
+
+            Thread thread = new Thread(task, "curve-loader");
+            thread.setDaemon(true);
+            thread.start();
         }
     }
 
+    private void cancelLoad() {
+        if (loadTask != null) {
+            loadTask.cancel(true);
+            finishLoad("Load cancelled.");
+        }
+    }
+
+    private void finishLoad(String status) {
+        journal.compact(document.snapshot());
+        loadTask = null;
+        loadMetrics = null;
+        loadProgress.progressProperty().unbind();
+        loadProgress.setVisible(false);
+        cancelButton.setVisible(false);
+        statusLabel.setText(status);
+    }
+
     private void commitSegment() {
-        if (currentSegment.points.size() >= 2) {
-            Main.this.isSaved = false;
-            segments.add(currentSegment);
+        CurveSegment segment = currentSegment;
+        history.removeIf(command -> command instanceof PenPointCommand && ((PenPointCommand) command).segment == segment);
+
+        if (currentSegment.model.size >= 2) {
+            Main.this.markEdited();
+            addSegment(currentSegment);
+            history.push(new AddSegmentCommand(currentSegment.model));
             currentSegment.removeFocus();
             currentSegment = new CurveSegment();
-        } else {
+        } else if (currentSegment.model.size > 0) {
             currentSegment.clear();
+            currentSegment = new CurveSegment();
         }
         if (selectedTool != CurveTool.NONE) {
             toolButtons.get(selectedTool.ordinal() - 1).setStyle("");
         }
         disableProperties();
         selectedTool = CurveTool.NONE;
+        updateHistoryCommands();
     }
 
     private void clearSelection() {
-        if (currentFocus != null) {
-            disableProperties();
-            currentFocus.removeFocus();
-            currentFocus = null;
+        if (!selection.isEmpty()) {
+            selection.clear();
+            updateSelection();
         }
         removePointSelection();
-        cutCommand.setDisable(true);
-        copyCommand.setDisable(true);
     }
 
     private void setSelection(CurveSegment segment) {
-        if (currentFocus != segment) {
-            clearSelection();
-            currentFocus = segment;
-            currentFocus.focus();
-            thicknessChange(currentFocus.thickness);
-            styleChange(currentFocus.style);
-            selectedColor = currentFocus.color;
-            colorPicker.setValue(selectedColor);
+        if (selection.size() != 1 || !selection.contains(segment)) {
+            selection.clear();
+            selection.add(segment);
+            updateSelection();
+        }
+    }
+
+    private void toggleSelection(CurveSegment segment) {
+        if (!selection.remove(segment)) {
+            selection.add(segment);
+        }
+        updateSelection();
+    }
+
+    private void selectArea(double minX, double minY, double maxX, double maxY, boolean extend) {
+        if (!extend) {
+            selection.clear();
+        }
+        for (SegmentModel model : index.select(minX, minY, maxX, maxY)) {
+            CurveSegment segment = views.get(model);
+            if (segment != null) {
+                selection.add(segment);
+            }
+        }
+        updateSelection();
+    }
+
+    private void updateSelection() {
+        CurveSegment focus = selection.size() == 1 ? selection.iterator().next() : null;
+
+        if (currentFocus != focus) {
+            if (currentFocus != null) {
+                removePointSelection();
+                currentFocus.removeFocus();
+            }
+            currentFocus = focus;
+            if (currentFocus != null) {
+                currentFocus.focus();
+            }
+        }
+
+        if (selection.isEmpty()) {
+            disableProperties();
+        } else {
+            SegmentModel first = selection.iterator().next().model;
+            if (selection.size() == 1) {
+                statusLabel.setText("Selected 1 segment, length " + String.format("%.1f", first.getLength()));
+            } else {
+                statusLabel.setText("Selected " + selection.size() + " segments");
+            }
+
+            showThickness(first.thickness);
+            showStyle(first.style);
+            selectedColor = toColor(first.color);
             enableProperties();
-            cutCommand.setDisable(false);
-            copyCommand.setDisable(false);
+        }
+
+        cutCommand.setDisable(selection.isEmpty());
+        copyCommand.setDisable(selection.isEmpty());
+        updateSelectionOutline();
+    }
+
+    private void updateSelectionOutline() {
+        ArrayList<PathElement> elements = new ArrayList<>();
+
+        if (selection.size() > 1) {
+            for (CurveSegment segment : selection) {
+                double[] bounds = segment.model.getBounds();
+                double margin = segment.model.thickness / 2.0;
+                double minX = bounds[0] - margin;
+                double minY = bounds[1] - margin;
+                double maxX = bounds[2] + margin;
+                double maxY = bounds[3] + margin;
+
+                elements.add(new MoveTo(minX, minY));
+                elements.add(new LineTo(maxX, minY));
+                elements.add(new LineTo(maxX, maxY));
+                elements.add(new LineTo(minX, maxY));
+                elements.add(new ClosePath());
+            }
+        }
+
+        selectionOutline.setStrokeWidth(1 / zoom);
+        selectionOutline.getElements().setAll(elements);
+    }
+
+    private void removeSelection() {
+        ArrayList<EditCommand> commands = new ArrayList<>();
+        ArrayList<CurveSegment> removed = new ArrayList<>(selection);
+
+        clearSelection();
+        for (CurveSegment segment : removed) {
+            removeSegment(segment);
+            commands.add(new RemoveSegmentCommand(segment.model));
+        }
+        record(commands.size() == 1 ? commands.get(0) : new CompoundCommand(commands));
+        markEdited();
+    }
+
+    private void copySelection() {
+        clipboard = new ArrayList<>(selection.size());
+        for (CurveSegment segment : selection) {
+            clipboard.add(new SegmentSnapshot(segment.model));
+        }
+        pasteCommand.setDisable(false);
+    }
+
+    private void paste(double deltaX, double deltaY) {
+        ArrayList<EditCommand> commands = new ArrayList<>(clipboard.size());
+
+        ArrayList<CurveSegment> pasted = new ArrayList<>(clipboard.size());
+
+        markEdited();
+        for (SegmentSnapshot snapshot : clipboard) {
+            SegmentModel copy = new SegmentModel(snapshot, deltaX, deltaY, document.random);
+            CurveSegment segment = new CurveSegment(copy);
+            addSegment(segment);
+            pasted.add(segment);
+            commands.add(new AddSegmentCommand(copy));
+        }
+        record(commands.size() == 1 ? commands.get(0) : new CompoundCommand(commands));
+
+        if (selectedTool == CurveTool.SELECT) {
+            selection.clear();
+            selection.addAll(pasted);
+            updateSelection();
+        }
+    }
+
+    private void selectCrossings() {
+        if (selectedTool != CurveTool.SELECT) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        ArrayList<CurveIntersector.Intersection> crossings = new CurveIntersector(document.segments).find(ForkJoinPool.commonPool());
+
+        selection.clear();
+        for (CurveIntersector.Intersection crossing : crossings) {
+            selection.add(views.get(crossing.first));
+            selection.add(views.get(crossing.second));
+        }
+        updateSelection();
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        statusLabel.setText("Found " + crossings.size() + " crossings between " + selection.size() + " segments in " + elapsed + " ms");
+    }
+
+    private void transformSelection(BiFunction<Double, Double, SegmentTransform> transform) {
+        if (selectedTool != CurveTool.SELECT || selection.isEmpty()) {
+            return;
+        }
+
+        ArrayList<SegmentModel> models = new ArrayList<>(selection.size());
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (CurveSegment segment : selection) {
+            double[] bounds = segment.model.getBounds();
+            minX = Math.min(minX, bounds[0]);
+            minY = Math.min(minY, bounds[1]);
+            maxX = Math.max(maxX, bounds[2]);
+            maxY = Math.max(maxY, bounds[3]);
+            models.add(segment.model);
+        }
+
+        SegmentTransform matrix = transform.apply((minX + maxX) / 2, (minY + maxY) / 2);
+        long start = System.nanoTime();
+        transformSegments(models, matrix);
+        record(new TransformCommand(models, matrix));
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        statusLabel.setText("Transformed " + models.size() + " segments in " + elapsed + " ms");
+    }
+
+    private void transformSegments(List<SegmentModel> models, SegmentTransform transform) {
+        transform.apply(models, ForkJoinPool.commonPool());
+
+        markEdited();
+        for (SegmentModel model : models) {
+            flattening.invalidate(model);
+            index.update(model);
+            snapIndex.update(model);
+            journal.segmentTransformed(model, transform);
+
+            CurveSegment segment = views.get(model);
+            if (segment != null) {
+                segment.reshape();
+            }
+        }
+        updateSelectionOutline();
+        requestRender();
+    }
+
+    private void refreshSegments(List<SegmentModel> models) {
+        markEdited();
+        for (SegmentModel model : models) {
+            CurveSegment segment = views.get(model);
+            if (segment != null) {
+                segment.restyle();
+            }
+            index.update(model);
+            journal.styleChanged(model);
+        }
+        updateSelectionOutline();
+        requestRender();
+    }
+
+    private void restyleSelection(Predicate<SegmentModel> differs, Consumer<SegmentModel> change) {
+        ArrayList<SegmentModel> changed = new ArrayList<>();
+        for (CurveSegment segment : selection) {
+            if (differs.test(segment.model)) {
+                changed.add(segment.model);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            StyleCommand command = new StyleCommand(changed);
+            for (SegmentModel model : changed) {
+                change.accept(model);
+            }
+            command.capture();
+            record(command);
+            refreshSegments(changed);
         }
     }
 
@@ -967,9 +1810,109 @@ public class Main extends Application {
 
     private void removeCurve(CurveSegment segment) {
         clearSelection();
+        removeSegment(segment);
+        record(new RemoveSegmentCommand(segment.model));
+        markEdited();
+    }
+
+    private void queueDrag(DragTarget target, double x, double y) {
+        if (dragTarget != null && dragTarget != target) {
+            applyDrag();
+        }
+        dragTarget = target;
+        dragX = x;
+        dragY = y;
+        dragMetrics.event();
+    }
+
+    private void applyDrag() {
+        if (dragTarget != null) {
+            DragTarget target = dragTarget;
+            dragTarget = null;
+            target.drag(dragX, dragY);
+            dragMetrics.update();
+        }
+    }
+
+    private void finishDrag() {
+        applyDrag();
+        if (dragMetrics.events > 0) {
+            statusLabel.setText(dragMetrics.toString());
+            dragMetrics.reset();
+        }
+    }
+
+    private void record(EditCommand command) {
+        history.push(command);
+        updateHistoryCommands();
+    }
+
+    private void undo() {
+        if (selectedTool == CurveTool.SELECT) {
+            clearSelection();
+        }
+        if (history.undo()) {
+            markEdited();
+        }
+        updateHistoryCommands();
+    }
+
+    private void redo() {
+        if (selectedTool == CurveTool.SELECT) {
+            clearSelection();
+        }
+        if (history.redo()) {
+            markEdited();
+        }
+        updateHistoryCommands();
+    }
+
+    private void updateHistoryCommands() {
+        undoCommand.setDisable(!history.canUndo());
+        redoCommand.setDisable(!history.canRedo());
+    }
+
+    private void addSegment(CurveSegment segment) {
+        segments.add(segment);
+        views.put(segment.model, segment);
+        document.add(segment.model);
+        index.add(segment.model);
+        snapIndex.add(segment.model);
+        journal.segmentAdded(segment.model);
+        requestRender();
+    }
+
+    private void removeSegment(CurveSegment segment) {
         segment.clear();
         segments.remove(segment);
-        isSaved = false;
+        views.remove(segment.model);
+        attached.remove(segment);
+        selection.remove(segment);
+        document.remove(segment.model);
+        index.remove(segment.model);
+        snapIndex.remove(segment.model);
+        flattening.remove(segment.model);
+        journal.segmentRemoved(segment.model);
+    }
+
+    private void clearSegments() {
+        for (CurveSegment curve : segments) {
+            curve.clear();
+        }
+        segments.clear();
+        views.clear();
+        attached.clear();
+        document.clear();
+        index.clear();
+        snapIndex.clear();
+        flattening.clear();
+    }
+
+    private CurveSegment createView(SegmentModel segment) {
+        CurveSegment view = new CurveSegment(segment);
+        segments.add(view);
+        views.put(segment, view);
+        return view;
     }
 
     private void promptShouldSave(Stage stage) {
@@ -987,10 +1930,87 @@ public class Main extends Application {
         fileChooser.setTitle("Save As");
         fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Curve File (*.curve)", "*.curve"));
         File file = fileChooser.showSaveDialog(stage);
+        saveCurves(file);
+    }
+
+    private void promptExport(Stage stage) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PNG Image (*.png)", "*.png"));
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("SVG Image (*.svg)", "*.svg"));
+        File file = fileChooser.showSaveDialog(stage);
+        exportCurves(file);
+    }
+
+    private void exportCurves(File file) {
         if (file != null) {
-            isSaved = true;
+            DocumentSnapshot snapshot = document.snapshot();
+            statusLabel.setText("Exporting " + file.getName() + "...");
+
+            saveExecutor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    ArrayList<SegmentModel> copies = new ArrayList<>();
+                    for (SegmentSnapshot segment : snapshot.segments) {
+                        copies.add(new SegmentModel(segment, null));
+                    }
+
+                    if (file.getName().toLowerCase().endsWith(".svg")) {
+                        SvgExporter.write(copies, file);
+                    } else {
+                        PngExporter.write(copies, file, 1, Runtime.getRuntime().availableProcessors());
+                    }
+
+                    long elapsed = (System.nanoTime() - start) / 1_000_000;
+                    Platform.runLater(() -> statusLabel.setText("Exported " + copies.size() + " segments to " + file.getName() + " in " + elapsed + " ms"));
+                } catch (Exception exception) {
+                    Platform.runLater(() -> {
+                        statusLabel.setText("Exporting " + file.getName() + " failed.");
+                        Alert alert = new Alert(Alert.AlertType.ERROR);
+                        alert.setHeaderText("An error has occurred!");
+                        alert.setContentText(exception.getMessage());
+                        alert.showAndWait();
+                    });
+                }
+            });
         }
-        saveCurves(file);
+    }
+
+    private void recoverJournal() {
+        if (journal.exists()) {
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "The editor did not shut down cleanly. Would you like to recover your unsaved work?", ButtonType.YES, ButtonType.NO);
+            alert.showAndWait();
+            if (alert.getResult() == ButtonType.YES) {
+                try {
+                    int applied = journal.recover(document);
+                    for (SegmentModel segment : document.segments) {
+                        createView(segment);
+                        index.add(segment);
+                        snapIndex.add(segment);
+                    }
+                    requestRender();
+                    markEdited();
+                    statusLabel.setText("Recovered " + document.segments.size() + " segments from " + applied + " journal records");
+                } catch (Exception exception) {
+                    clearSegments();
+                    Alert error = new Alert(Alert.AlertType.ERROR);
+                    error.setHeaderText("An error has occurred!");
+                    error.setContentText(exception.getMessage());
+                    error.showAndWait();
+                }
+            }
+        }
+        journal.compact(document.snapshot());
+    }
+
+    private void markEdited() {
+        isSaved = false;
+        ++revision;
+    }
+
+    private void markSaved() {
+        isSaved = true;
+        ++revision;
     }
 
     private void toolChange(CurveTool tool) {
@@ -1043,11 +2063,9 @@ public class Main extends Application {
             toolButtons.get(0).setStyle("-fx-background-color: lightgreen;");
         }
         selectedColor = colorPicker.getValue();
-        if (currentFocus != null && selectedTool == CurveTool.SELECT) {
-            if (currentFocus.color != selectedColor) {
-                currentFocus.color = selectedColor;
-                currentFocus.refresh();
-            }
+        if (selectedTool == CurveTool.SELECT) {
+            int color = toModelColor(selectedColor);
+            restyleSelection(model -> model.color != color, model -> model.color = color);
         }
     }
 
@@ -1058,14 +2076,9 @@ public class Main extends Application {
             enableProperties();
             toolButtons.get(0).setStyle("-fx-background-color: lightgreen;");
         }
-        styleButtons.get(selectedStyle.ordinal()).setStyle("");
-        styleButtons.get(style.ordinal()).setStyle("-fx-background-color: lightgreen;");
-        selectedStyle = style;
-        if (currentFocus != null && selectedTool == CurveTool.SELECT) {
-            if (currentFocus.style != selectedStyle) {
-                currentFocus.style = selectedStyle;
-                currentFocus.refresh();
-            }
+        showStyle(style);
+        if (selectedTool == CurveTool.SELECT) {
+            restyleSelection(model -> model.style != style, model -> model.style = style);
         }
     }
 
@@ -1076,22 +2089,188 @@ public class Main extends Application {
             enableProperties();
             toolButtons.get(0).setStyle("-fx-background-color: lightgreen;");
         }
+        showThickness(value);
+        if (selectedTool == CurveTool.SELECT) {
+            restyleSelection(model -> model.thickness != value, model -> model.thickness = value);
+        }
+    }
+
+    private void showStyle(CurveStyle style) {
+        styleButtons.get(selectedStyle.ordinal()).setStyle("");
+        styleButtons.get(style.ordinal()).setStyle("-fx-background-color: lightgreen;");
+        selectedStyle = style;
+    }
+
+    private void showThickness(int value) {
         thicknessButtons.get(selectedThickness / 5 - 1).setStyle("");
         thicknessButtons.get(value / 5 - 1).setStyle("-fx-background-color: lightgreen;");
         selectedThickness = value;
-        if (currentFocus != null && selectedTool == CurveTool.SELECT) {
-            if (currentFocus.thickness != value) {
-                currentFocus.thickness = value;
-                currentFocus.refresh();
+    }
+
+    private void canvasClick(double x, double y, boolean extend) {
+        if (selectedTool == CurveTool.PEN) {
+            Point2D position = snap(x, y, null, -1);
+            currentSegment.append(position.getX(), position.getY());
+            record(new PenPointCommand(currentSegment));
+        } else if (selectedTool == CurveTool.SELECT || selectedTool == CurveTool.ERASE) {
+            CurveSegment segment = pick(x, y);
+            if (segment != null) {
+                if (selectedTool == CurveTool.SELECT && extend) {
+                    toggleSelection(segment);
+                } else if (selectedTool == CurveTool.SELECT) {
+                    setSelection(segment);
+                } else {
+                    removeCurve(segment);
+                }
             }
         }
     }
 
-    private void canvasClick(double x, double y) {
-        if (selectedTool == CurveTool.PEN) {
-            currentSegment.add(x, y);
-            currentSegment.render();
+    private Point2D snap(double x, double y, SegmentModel segment, int point) {
+        if (pointSnapping) {
+            SnapIndex.Snap snap = snapIndex.nearest(x, y, SNAP_PIXELS / zoom, segment, point);
+            if (snap != null) {
+                return new Point2D(snap.x, snap.y);
+            }
+        }
+        if (gridSnapping) {
+            return new Point2D(Math.round(x / GRID_SIZE) * GRID_SIZE, Math.round(y / GRID_SIZE) * GRID_SIZE);
+        }
+        return new Point2D(x, y);
+    }
+
+    private CurveSegment pick(double x, double y) {
+        SpanIndex.SpanEntry entry = index.pick(x, y, 2 / zoom);
+        return entry != null ? views.get(entry.segment) : null;
+    }
+
+    private void setCanvasRendering(boolean enabled) {
+        if (canvasRendering != enabled) {
+            if (selectedTool == CurveTool.PEN) {
+                commitSegment();
+            } else if (selectedTool == CurveTool.SELECT) {
+                clearSelection();
+            }
+
+            for (CurveSegment curve : segments) {
+                curve.clear();
+            }
+            segments.clear();
+            views.clear();
+            attached.clear();
+
+            canvasRendering = enabled;
+            if (canvasRendering) {
+                canvas.getChildren().add(0, renderer.canvas);
+                curveLayer.getChildren().clear();
+                currentSegment.detach();
+            } else {
+                canvas.getChildren().remove(renderer.canvas);
+                currentSegment.attach();
+            }
+
+            for (SegmentModel segment : document.segments) {
+                createView(segment);
+            }
+            requestRender();
+        }
+    }
+
+    private void requestRender() {
+        renderPending = true;
+    }
+
+    private void render() {
+        Bounds viewport = scrollPane.getViewportBounds();
+        double x = -viewport.getMinX() / zoom;
+        double y = -viewport.getMinY() / zoom;
+        double width = viewport.getWidth() / zoom;
+        double height = viewport.getHeight() / zoom;
+        double margin = VIEWPORT_MARGIN / zoom + index.getMargin();
+
+        canvas.setMinSize(Math.max(index.getExtentX(), currentSegment.model.getMaxX()), Math.max(index.getExtentY(), currentSegment.model.getMaxY()));
+        ArrayList<SpanIndex.SpanEntry> visible = index.query(x - margin, y - margin, x + width + margin, y + height + margin);
+
+        if (canvasRendering) {
+            renderer.render(visible, currentSegment.model, x, y, width, height, zoom);
+        } else {
+            updateAttached(visible);
+        }
+    }
+
+    private void zoomViewport(double value) {
+        Bounds viewport = scrollPane.getViewportBounds();
+        zoomAt(value, (viewport.getWidth() / 2 - viewport.getMinX()) / zoom, (viewport.getHeight() / 2 - viewport.getMinY()) / zoom);
+    }
+
+    private void zoomAt(double value, double anchorX, double anchorY) {
+        value = clamp(value, MIN_ZOOM, MAX_ZOOM);
+        if (value == zoom) {
+            return;
         }
+
+        Bounds viewport = scrollPane.getViewportBounds();
+        double screenX = anchorX * zoom + viewport.getMinX();
+        double screenY = anchorY * zoom + viewport.getMinY();
+
+        zoom = value;
+        zoomScale.setX(zoom);
+        zoomScale.setY(zoom);
+        scrollPane.layout();
+
+        Bounds content = zoomGroup.getLayoutBounds();
+        double hiddenX = content.getWidth() - viewport.getWidth();
+        double hiddenY = content.getHeight() - viewport.getHeight();
+        scrollPane.setHvalue(hiddenX > 0 ? clamp((anchorX * zoom - screenX) / hiddenX, 0, 1) : 0);
+        scrollPane.setVvalue(hiddenY > 0 ? clamp((anchorY * zoom - screenY) / hiddenY, 0, 1) : 0);
+
+        statusLabel.setText(String.format("Zoom %.0f%%", zoom * 100));
+        requestRender();
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private void updateAttached(List<SpanIndex.SpanEntry> visible) {
+        HashMap<CurveSegment, Long> orders = new HashMap<>();
+        for (SpanIndex.SpanEntry entry : visible) {
+            CurveSegment view = views.get(entry.segment);
+            if (view != null) {
+                orders.merge(view, entry.order, Math::min);
+            }
+        }
+
+        if (orders.keySet().equals(attached)) {
+            return;
+        }
+
+        for (CurveSegment view : attached) {
+            if (!orders.containsKey(view)) {
+                view.detach();
+            }
+        }
+
+        ArrayList<CurveSegment> ordered = new ArrayList<>(orders.keySet());
+        ordered.sort(Comparator.comparingLong(orders::get));
+
+        ArrayList<CubicCurve> curves = new ArrayList<>();
+        for (CurveSegment view : ordered) {
+            view.attach();
+            curves.addAll(view.curves);
+        }
+        curves.addAll(currentSegment.curves);
+
+        curveLayer.getChildren().setAll(curves);
+        attached = new HashSet<>(orders.keySet());
+    }
+
+    private Color toColor(int color) {
+        return Color.valueOf(SegmentModel.formatColor(color));
+    }
+
+    private int toModelColor(Color color) {
+        return SegmentModel.parseColor(color.toString());
     }
 
     private Label createLabel(String text) {
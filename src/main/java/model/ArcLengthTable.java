@@ -0,0 +1,248 @@
+package model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+public class ArcLengthTable {
+    public static final int SAMPLES = 8;
+    public static final int MAX_ITERATIONS = 32;
+    public static final int MAX_DEPTH = 12;
+    public static final double TOLERANCE = 1e-7;
+
+    private SegmentModel segment;
+    private int spans;
+    private double[] lengths;
+    private double[] bounds;
+    private double[] starts;
+    private BitSet valid;
+    private boolean startsValid;
+
+    public ArcLengthTable(SegmentModel segment) {
+        this.segment = segment;
+        spans = 0;
+        lengths = new double[0];
+        bounds = new double[0];
+        starts = new double[1];
+        valid = new BitSet();
+        startsValid = false;
+    }
+
+    public void invalidate(int point) {
+        if (point > 0) {
+            valid.clear(point - 1);
+        }
+        valid.clear(point);
+        startsValid = false;
+    }
+
+    public void invalidate() {
+        valid.clear();
+        startsValid = false;
+    }
+
+    public double getLength() {
+        prepareStarts();
+        return starts[spans];
+    }
+
+    public double getSpanLength(int span) {
+        prepare(span);
+        return lengths[span * (SAMPLES + 1) + SAMPLES];
+    }
+
+    public double getDistance(int span) {
+        prepareStarts();
+        return starts[span];
+    }
+
+    public double getParameter(double distance) {
+        prepareStarts();
+
+        if (spans == 0) {
+            return 0;
+        }
+        if (distance <= 0) {
+            return 0;
+        }
+        if (distance >= starts[spans]) {
+            return spans;
+        }
+
+        int span = Arrays.binarySearch(starts, 0, spans + 1, distance);
+        if (span < 0) {
+            span = -span - 2;
+        }
+        span = Math.min(span, spans - 1);
+
+        return span + getSpanParameter(span, distance - starts[span]);
+    }
+
+    public double getSpanParameter(int span, double distance) {
+        prepare(span);
+
+        int base = span * (SAMPLES + 1);
+        double total = lengths[base + SAMPLES];
+
+        if (distance <= 0 || total == 0) {
+            return 0;
+        }
+        if (distance >= total) {
+            return 1;
+        }
+
+        int sample = Arrays.binarySearch(lengths, base, base + SAMPLES + 1, distance);
+        if (sample < 0) {
+            sample = -sample - 2;
+        }
+        sample = Math.min(sample - base, SAMPLES - 1);
+
+        double from = (double) sample / SAMPLES;
+        double to = (double) (sample + 1) / SAMPLES;
+        double before = lengths[base + sample];
+        double width = lengths[base + sample + 1] - before;
+        double t = width == 0 ? from : from + (distance - before) / width * (to - from);
+        double low = from;
+        double high = to;
+
+        for (int i = 0; i < MAX_ITERATIONS; ++i) {
+            double error = before + length(span, from, t) - distance;
+
+            if (Math.abs(error) <= TOLERANCE * 10) {
+                break;
+            }
+
+            if (error > 0) {
+                high = t;
+            } else {
+                low = t;
+            }
+
+            double speed = speed(span, t);
+            double next = speed == 0 ? low : t - error / speed;
+            t = next <= low || next >= high ? (low + high) / 2 : next;
+        }
+
+        return t;
+    }
+
+    public double[] getSpanBounds(int span) {
+        prepare(span);
+        return Arrays.copyOfRange(bounds, span * 4, span * 4 + 4);
+    }
+
+    public double[] getBounds() {
+        double[] result = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+
+        if (segment.size == 1) {
+            return new double[] { segment.getX(0), segment.getY(0), segment.getX(0), segment.getY(0) };
+        }
+
+        for (int span = 0; span < segment.getSpanCount(); ++span) {
+            prepare(span);
+            result[0] = Math.min(result[0], bounds[span * 4]);
+            result[1] = Math.min(result[1], bounds[span * 4 + 1]);
+            result[2] = Math.max(result[2], bounds[span * 4 + 2]);
+            result[3] = Math.max(result[3], bounds[span * 4 + 3]);
+        }
+
+        return result;
+    }
+
+    private void resize() {
+        int count = segment.getSpanCount();
+
+        if (count != spans) {
+            if (count > spans) {
+                lengths = Arrays.copyOf(lengths, Math.max(count, spans * 2) * (SAMPLES + 1));
+                bounds = Arrays.copyOf(bounds, Math.max(count, spans * 2) * 4);
+            }
+            valid.clear(Math.max(count - 1, 0), Math.max(count, valid.length()));
+            spans = count;
+            startsValid = false;
+        }
+    }
+
+    private void prepare(int span) {
+        resize();
+
+        if (valid.get(span)) {
+            return;
+        }
+
+        int base = span * (SAMPLES + 1);
+        lengths[base] = 0;
+        for (int i = 0; i < SAMPLES; ++i) {
+            lengths[base + i + 1] = lengths[base + i] + length(span, (double) i / SAMPLES, (double) (i + 1) / SAMPLES);
+        }
+
+        double x0 = segment.getX(span);
+        double y0 = segment.getY(span);
+        double x1 = segment.getOutX(span);
+        double y1 = segment.getOutY(span);
+        double x2 = segment.getInX(span + 1);
+        double y2 = segment.getInY(span + 1);
+        double x3 = segment.getX(span + 1);
+        double y3 = segment.getY(span + 1);
+        double[] roots = new double[2];
+
+        bounds[span * 4] = Math.min(x0, x3);
+        bounds[span * 4 + 1] = Math.min(y0, y3);
+        bounds[span * 4 + 2] = Math.max(x0, x3);
+        bounds[span * 4 + 3] = Math.max(y0, y3);
+
+        for (int i = Bezier.extrema(x0, x1, x2, x3, roots) - 1; i >= 0; --i) {
+            double x = Bezier.evaluate(x0, x1, x2, x3, roots[i]);
+            bounds[span * 4] = Math.min(bounds[span * 4], x);
+            bounds[span * 4 + 2] = Math.max(bounds[span * 4 + 2], x);
+        }
+
+        for (int i = Bezier.extrema(y0, y1, y2, y3, roots) - 1; i >= 0; --i) {
+            double y = Bezier.evaluate(y0, y1, y2, y3, roots[i]);
+            bounds[span * 4 + 1] = Math.min(bounds[span * 4 + 1], y);
+            bounds[span * 4 + 3] = Math.max(bounds[span * 4 + 3], y);
+        }
+
+        valid.set(span);
+    }
+
+    private void prepareStarts() {
+        resize();
+
+        if (!startsValid) {
+            if (starts.length < spans + 1) {
+                starts = new double[Math.max(spans + 1, starts.length * 2)];
+            }
+            starts[0] = 0;
+            for (int span = 0; span < spans; ++span) {
+                starts[span + 1] = starts[span] + getSpanLength(span);
+            }
+            startsValid = true;
+        }
+    }
+
+    private double length(int span, double from, double to) {
+        return integrate(span, from, to, gauss(span, from, to), 0);
+    }
+
+    private double integrate(int span, double from, double to, double whole, int depth) {
+        double middle = (from + to) / 2;
+        double left = gauss(span, from, middle);
+        double right = gauss(span, middle, to);
+
+        if (depth >= MAX_DEPTH || Math.abs(left + right - whole) <= TOLERANCE) {
+            return left + right;
+        }
+
+        return integrate(span, from, middle, left, depth + 1) + integrate(span, middle, to, right, depth + 1);
+    }
+
+    private double gauss(int span, double from, double to) {
+        return Bezier.length(segment.getX(span), segment.getY(span), segment.getOutX(span), segment.getOutY(span),
+                segment.getInX(span + 1), segment.getInY(span + 1), segment.getX(span + 1), segment.getY(span + 1), from, to);
+    }
+
+    private double speed(int span, double t) {
+        return Bezier.speed(segment.getX(span), segment.getY(span), segment.getOutX(span), segment.getOutY(span),
+                segment.getInX(span + 1), segment.getInY(span + 1), segment.getX(span + 1), segment.getY(span + 1), t);
+    }
+}
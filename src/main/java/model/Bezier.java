@@ -0,0 +1,162 @@
+package model;
+
+public class Bezier {
+    public static final int STEPS = 16;
+    public static final int ITERATIONS = 4;
+    public static final int MAX_DEPTH = 16;
+
+    private static final double[] GAUSS_NODES = { 0, -0.5384693101056831, 0.5384693101056831, -0.9061798459386640, 0.9061798459386640 };
+    private static final double[] GAUSS_WEIGHTS = { 0.5688888888888889, 0.4786286704993665, 0.4786286704993665, 0.2369268850561891, 0.2369268850561891 };
+
+    public static double evaluate(double p0, double p1, double p2, double p3, double t) {
+        double u = 1 - t;
+        return u * u * u * p0 + 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t * p3;
+    }
+
+    public static double derivative(double p0, double p1, double p2, double p3, double t) {
+        double u = 1 - t;
+        return 3 * u * u * (p1 - p0) + 6 * u * t * (p2 - p1) + 3 * t * t * (p3 - p2);
+    }
+
+    public static double secondDerivative(double p0, double p1, double p2, double p3, double t) {
+        return 6 * (1 - t) * (p2 - 2 * p1 + p0) + 6 * t * (p3 - 2 * p2 + p1);
+    }
+
+    public static double speed(double x0, double y0, double x1, double y1, double x2, double y2, double x3, double y3, double t) {
+        return Math.hypot(derivative(x0, x1, x2, x3, t), derivative(y0, y1, y2, y3, t));
+    }
+
+    public static double length(double x0, double y0, double x1, double y1, double x2, double y2, double x3, double y3, double from, double to) {
+        double half = (to - from) / 2;
+        double middle = (to + from) / 2;
+        double length = 0;
+
+        for (int i = 0; i < GAUSS_NODES.length; ++i) {
+            length += GAUSS_WEIGHTS[i] * speed(x0, y0, x1, y1, x2, y2, x3, y3, middle + half * GAUSS_NODES[i]);
+        }
+
+        return length * half;
+    }
+
+    public static int extrema(double p0, double p1, double p2, double p3, double[] roots) {
+        double a = 3 * (p3 - 3 * p2 + 3 * p1 - p0);
+        double b = 6 * (p2 - 2 * p1 + p0);
+        double c = 3 * (p1 - p0);
+        int count = 0;
+
+        if (Math.abs(a) < 1e-12) {
+            if (b != 0) {
+                count = addRoot(-c / b, roots, count);
+            }
+            return count;
+        }
+
+        double discriminant = b * b - 4 * a * c;
+        if (discriminant < 0) {
+            return 0;
+        }
+
+        double root = Math.sqrt(discriminant);
+        count = addRoot((-b + root) / (2 * a), roots, count);
+        count = addRoot((-b - root) / (2 * a), roots, count);
+        return count;
+    }
+
+    private static int addRoot(double t, double[] roots, int count) {
+        if (t > 0 && t < 1) {
+            roots[count++] = t;
+        }
+        return count;
+    }
+
+    public static double nearestParameter(double x, double y, double x0, double y0, double x1, double y1, double x2, double y2, double x3, double y3) {
+        double bestT = 0;
+        double best = Double.MAX_VALUE;
+
+        for (int i = 0; i <= STEPS; ++i) {
+            double t = (double) i / STEPS;
+            double dx = evaluate(x0, x1, x2, x3, t) - x;
+            double dy = evaluate(y0, y1, y2, y3, t) - y;
+            double distance = dx * dx + dy * dy;
+
+            if (distance < best) {
+                best = distance;
+                bestT = t;
+            }
+        }
+
+        double t = bestT;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            double dx = evaluate(x0, x1, x2, x3, t) - x;
+            double dy = evaluate(y0, y1, y2, y3, t) - y;
+            double firstX = derivative(x0, x1, x2, x3, t);
+            double firstY = derivative(y0, y1, y2, y3, t);
+            double secondX = secondDerivative(x0, x1, x2, x3, t);
+            double secondY = secondDerivative(y0, y1, y2, y3, t);
+
+            double numerator = dx * firstX + dy * firstY;
+            double denominator = firstX * firstX + firstY * firstY + dx * secondX + dy * secondY;
+
+            if (denominator == 0) {
+                break;
+            }
+
+            t = Math.max(0, Math.min(1, t - numerator / denominator));
+        }
+
+        double dx = evaluate(x0, x1, x2, x3, t) - x;
+        double dy = evaluate(y0, y1, y2, y3, t) - y;
+
+        return dx * dx + dy * dy < best ? t : bestT;
+    }
+
+    public static double distanceSquared(double x, double y, double x0, double y0, double x1, double y1, double x2, double y2, double x3, double y3) {
+        double t = nearestParameter(x, y, x0, y0, x1, y1, x2, y2, x3, y3);
+        double dx = evaluate(x0, x1, x2, x3, t) - x;
+        double dy = evaluate(y0, y1, y2, y3, t) - y;
+
+        return dx * dx + dy * dy;
+    }
+
+    public static void flatten(double x0, double y0, double x1, double y1, double x2, double y2, double x3, double y3, double tolerance, Polyline out) {
+        subdivide(x0, y0, x1, y1, x2, y2, x3, y3, tolerance * tolerance, out, 0);
+    }
+
+    private static void subdivide(double x0, double y0, double x1, double y1, double x2, double y2, double x3, double y3, double tolerance, Polyline out, int depth) {
+        if (depth >= MAX_DEPTH || flatness(x0, y0, x1, y1, x2, y2, x3, y3) <= tolerance) {
+            out.add(x3, y3);
+            return;
+        }
+
+        double x01 = (x0 + x1) / 2;
+        double y01 = (y0 + y1) / 2;
+        double x12 = (x1 + x2) / 2;
+        double y12 = (y1 + y2) / 2;
+        double x23 = (x2 + x3) / 2;
+        double y23 = (y2 + y3) / 2;
+        double x012 = (x01 + x12) / 2;
+        double y012 = (y01 + y12) / 2;
+        double x123 = (x12 + x23) / 2;
+        double y123 = (y12 + y23) / 2;
+        double xm = (x012 + x123) / 2;
+        double ym = (y012 + y123) / 2;
+
+        subdivide(x0, y0, x01, y01, x012, y012, xm, ym, tolerance, out, depth + 1);
+        subdivide(xm, ym, x123, y123, x23, y23, x3, y3, tolerance, out, depth + 1);
+    }
+
+    private static double flatness(double x0, double y0, double x1, double y1, double x2, double y2, double x3, double y3) {
+        return Math.max(chordDistance(x1, y1, x0, y0, x3, y3), chordDistance(x2, y2, x0, y0, x3, y3));
+    }
+
+    private static double chordDistance(double x, double y, double x0, double y0, double x1, double y1) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double squared = dx * dx + dy * dy;
+        double t = squared == 0 ? 0 : Math.max(0, Math.min(1, ((x - x0) * dx + (y - y0) * dy) / squared));
+        double ex = x0 + t * dx - x;
+        double ey = y0 + t * dy - y;
+
+        return ex * ex + ey * ey;
+    }
+}
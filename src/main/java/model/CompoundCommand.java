@@ -0,0 +1,25 @@
+package model;
+
+import java.util.List;
+
+public class CompoundCommand implements EditCommand {
+    private List<EditCommand> commands;
+
+    public CompoundCommand(List<EditCommand> commands) {
+        this.commands = commands;
+    }
+
+    @Override
+    public void undo() {
+        for (int i = commands.size() - 1; i >= 0; --i) {
+            commands.get(i).undo();
+        }
+    }
+
+    @Override
+    public void redo() {
+        for (EditCommand command : commands) {
+            command.redo();
+        }
+    }
+}
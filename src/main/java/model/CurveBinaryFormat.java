@@ -0,0 +1,226 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Random;
+
+public class CurveBinaryFormat {
+    public static final int MAGIC = 0x43525642;
+    public static final short VERSION = 1;
+    public static final short FLAG_FLOAT = 1;
+    public static final int HEADER_SIZE = 12;
+    public static final int TABLE_ENTRY_SIZE = 21;
+
+    public static boolean isBinary(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            return input.length() >= HEADER_SIZE && input.readInt() == MAGIC;
+        }
+    }
+
+    public static void write(DocumentSnapshot snapshot, File file, boolean singlePrecision) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+
+        try {
+            try (FileOutputStream stream = new FileOutputStream(temporary.toFile())) {
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+                write(snapshot, output, singlePrecision);
+                output.flush();
+                stream.getChannel().force(true);
+            }
+
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static void write(DocumentSnapshot snapshot, DataOutputStream output, boolean singlePrecision) throws IOException {
+        int width = singlePrecision ? Float.BYTES : Double.BYTES;
+        List<SegmentSnapshot> segments = snapshot.segments;
+
+        output.writeInt(MAGIC);
+        output.writeShort(VERSION);
+        output.writeShort(singlePrecision ? FLAG_FLOAT : 0);
+        output.writeInt(segments.size());
+
+        long offset = HEADER_SIZE + (long) TABLE_ENTRY_SIZE * segments.size();
+        for (SegmentSnapshot segment : segments) {
+            output.writeInt(segment.color);
+            output.writeByte(segment.style.ordinal());
+            output.writeInt(segment.thickness);
+            output.writeInt(segment.size());
+            output.writeLong(offset);
+            offset += (long) (segment.points.length + segment.controls.length) * width + (segment.size() + 7) / 8;
+        }
+
+        for (SegmentSnapshot segment : segments) {
+            writeSegmentData(output, segment, singlePrecision);
+        }
+    }
+
+    public static void writeSegmentData(DataOutputStream output, SegmentSnapshot segment, boolean singlePrecision) throws IOException {
+        for (double value : segment.points) {
+            writeValue(output, value, singlePrecision);
+        }
+
+        int flags = 0;
+        for (int i = 0; i < segment.size(); ++i) {
+            if (segment.smooth[i]) {
+                flags |= 1 << (i % 8);
+            }
+            if (i % 8 == 7 || i == segment.size() - 1) {
+                output.writeByte(flags);
+                flags = 0;
+            }
+        }
+
+        for (double value : segment.controls) {
+            writeValue(output, value, singlePrecision);
+        }
+    }
+
+    public static class BinaryReader implements CurveReader {
+        private FileChannel channel;
+        private MappedByteBuffer buffer;
+        private Random random;
+        private boolean singlePrecision;
+        private int count;
+        private int current;
+
+        public BinaryReader(File file, Random random) throws IOException {
+            this.random = random;
+            channel = FileChannel.open(file.toPath());
+
+            try {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Curve file is larger than 2 GB.");
+                }
+                if (channel.size() < HEADER_SIZE) {
+                    throw new IOException("Not a binary curve file.");
+                }
+
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+                if (buffer.getInt() != MAGIC) {
+                    throw new IOException("Not a binary curve file.");
+                }
+
+                short version = buffer.getShort();
+                if (version > VERSION) {
+                    throw new IOException("Unsupported curve file version " + version + ".");
+                }
+
+                singlePrecision = (buffer.getShort() & FLAG_FLOAT) != 0;
+                count = buffer.getInt();
+                current = 0;
+
+                if (count < 0 || HEADER_SIZE + (long) count * TABLE_ENTRY_SIZE > buffer.limit()) {
+                    throw new IOException("Corrupt segment table.");
+                }
+            } catch (IOException exception) {
+                channel.close();
+                throw exception;
+            }
+        }
+
+        @Override
+        public SegmentModel next() throws IOException {
+            if (current >= count) {
+                return null;
+            }
+
+            int entry = HEADER_SIZE + current * TABLE_ENTRY_SIZE;
+            int color = buffer.getInt(entry);
+            int style = buffer.get(entry + 4);
+            int thickness = buffer.getInt(entry + 5);
+            int size = buffer.getInt(entry + 9);
+            long offset = buffer.getLong(entry + 13);
+            CurveStyle[] styles = CurveStyle.values();
+
+            if (style < 0 || style >= styles.length || !SegmentModel.isValidThickness(thickness) || size < 0 || offset < 0
+                    || offset + dataSize(size, singlePrecision) > buffer.limit()) {
+                throw new IOException("Corrupt segment table entry " + current + ".");
+            }
+
+            SegmentModel segment = new SegmentModel(color, styles[style], thickness, random);
+            buffer.position((int) offset);
+            readPoints(buffer, segment, size, singlePrecision);
+
+            ++current;
+            return segment;
+        }
+
+        @Override
+        public double getProgress() {
+            return count == 0 ? 1 : (double) current / count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    public static long dataSize(int size, boolean singlePrecision) {
+        int width = singlePrecision ? Float.BYTES : Double.BYTES;
+        return (long) size * 2 * width + (size + 7) / 8 + (long) Math.max(size - 1, 0) * 4 * width;
+    }
+
+    public static void readPoints(ByteBuffer buffer, SegmentModel segment, int size, boolean singlePrecision) {
+        segment.ensureCapacity(size);
+        segment.size = size;
+
+        for (int i = 0; i < size * 2; ++i) {
+            segment.anchors[i] = readValue(buffer, singlePrecision);
+        }
+
+        int flags = 0;
+        for (int i = 0; i < size; ++i) {
+            if (i % 8 == 0) {
+                flags = buffer.get();
+            }
+            segment.smooth.set(i, (flags & (1 << (i % 8))) != 0);
+        }
+
+        for (int i = 0; i < size; ++i) {
+            if (i > 0) {
+                segment.inOffsets[i * 2] = readValue(buffer, singlePrecision);
+                segment.inOffsets[i * 2 + 1] = readValue(buffer, singlePrecision);
+            }
+
+            if (i < size - 1) {
+                segment.outOffsets[i * 2] = readValue(buffer, singlePrecision);
+                segment.outOffsets[i * 2 + 1] = readValue(buffer, singlePrecision);
+            }
+        }
+    }
+
+    private static void writeValue(DataOutputStream output, double value, boolean singlePrecision) throws IOException {
+        if (singlePrecision) {
+            output.writeFloat((float) value);
+        } else {
+            output.writeDouble(value);
+        }
+    }
+
+    private static double readValue(ByteBuffer buffer, boolean singlePrecision) {
+        return singlePrecision ? buffer.getFloat() : buffer.getDouble();
+    }
+}
@@ -0,0 +1,71 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+public class CurveDocument {
+    public ArrayList<SegmentModel> segments;
+    public Random random;
+    private long nextId;
+
+    public CurveDocument() {
+        this(new Random());
+    }
+
+    public CurveDocument(Random random) {
+        this.random = random;
+        segments = new ArrayList<>();
+        nextId = 1;
+    }
+
+    public SegmentModel createSegment() {
+        return new SegmentModel(random);
+    }
+
+    public void add(SegmentModel segment) {
+        segment.id = nextId++;
+        segments.add(segment);
+    }
+
+    public void remove(SegmentModel segment) {
+        segments.remove(segment);
+    }
+
+    public void clear() {
+        segments.clear();
+    }
+
+    public String save() {
+        StringBuilder data = new StringBuilder("*");
+        for (SegmentModel segment : segments) {
+            data.append(segment.save()).append("*");
+        }
+        return data.toString();
+    }
+
+    public DocumentSnapshot snapshot() {
+        return new DocumentSnapshot(segments);
+    }
+
+    public void save(File file) throws IOException {
+        CurveBinaryFormat.write(snapshot(), file, false);
+    }
+
+    public ArrayList<SegmentModel> load(File file) throws IOException {
+        ArrayList<SegmentModel> loaded = new ArrayList<>();
+
+        try (CurveReader reader = CurveReader.open(file, random)) {
+            SegmentModel segment;
+            while ((segment = reader.next()) != null) {
+                loaded.add(segment);
+            }
+        }
+
+        for (SegmentModel segment : loaded) {
+            add(segment);
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,501 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class CurveIntersector {
+    public static final double DEFAULT_TOLERANCE = 0.01;
+    public static final int MAX_DEPTH = 32;
+    public static final int SWEEP_CHUNK = 1024;
+    public static final int REFINE_ITERATIONS = 4;
+
+    private static final double EPSILON = 1e-9;
+    private static final double ANGLE_EPSILON = 1e-6;
+
+    public static class Intersection {
+        public SegmentModel first;
+        public int firstSpan;
+        public double firstT;
+        public SegmentModel second;
+        public int secondSpan;
+        public double secondT;
+        public double x;
+        public double y;
+        private int firstOrder;
+        private int secondOrder;
+    }
+
+    private class SweepTask extends RecursiveTask<ArrayList<Intersection>> {
+        private static final long serialVersionUID = 1L;
+
+        private int from;
+        private int to;
+
+        SweepTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ArrayList<Intersection> compute() {
+            if (to - from <= SWEEP_CHUNK) {
+                ArrayList<Intersection> result = new ArrayList<>();
+                sweep(from, to, result);
+                return result;
+            }
+
+            int middle = (from + to) >>> 1;
+            SweepTask right = new SweepTask(middle, to);
+            right.fork();
+            ArrayList<Intersection> result = new SweepTask(from, middle).compute();
+            result.addAll(right.join());
+            return result;
+        }
+    }
+
+    private List<SegmentModel> segments;
+    private double tolerance;
+    private int count;
+    private double[] curves;
+    private double[] bounds;
+    private int[] owners;
+    private int[] spans;
+
+    public CurveIntersector(List<SegmentModel> segments) {
+        this(segments, DEFAULT_TOLERANCE);
+    }
+
+    public CurveIntersector(List<SegmentModel> segments, double tolerance) {
+        this.segments = segments;
+        this.tolerance = tolerance;
+
+        ArrayList<int[]> order = new ArrayList<>();
+        for (int i = 0; i < segments.size(); ++i) {
+            for (int span = 0; span < segments.get(i).getSpanCount(); ++span) {
+                order.add(new int[] { i, span });
+            }
+        }
+
+        count = order.size();
+        curves = new double[count * 8];
+        bounds = new double[count * 4];
+        owners = new int[count];
+        spans = new int[count];
+
+        double[] unsorted = new double[count];
+        for (int i = 0; i < count; ++i) {
+            SegmentModel segment = segments.get(order.get(i)[0]);
+            int span = order.get(i)[1];
+            unsorted[i] = Math.min(Math.min(segment.getX(span), segment.getOutX(span)), Math.min(segment.getInX(span + 1), segment.getX(span + 1)));
+        }
+
+        Integer[] sorted = new Integer[count];
+        for (int i = 0; i < count; ++i) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, Comparator.comparingDouble(i -> unsorted[i]));
+
+        for (int i = 0; i < count; ++i) {
+            int[] entry = order.get(sorted[i]);
+            SegmentModel segment = segments.get(entry[0]);
+            int span = entry[1];
+            int at = i * 8;
+
+            owners[i] = entry[0];
+            spans[i] = span;
+            curves[at] = segment.getX(span);
+            curves[at + 1] = segment.getY(span);
+            curves[at + 2] = segment.getOutX(span);
+            curves[at + 3] = segment.getOutY(span);
+            curves[at + 4] = segment.getInX(span + 1);
+            curves[at + 5] = segment.getInY(span + 1);
+            curves[at + 6] = segment.getX(span + 1);
+            curves[at + 7] = segment.getY(span + 1);
+
+            bounds[i * 4] = Math.min(Math.min(curves[at], curves[at + 2]), Math.min(curves[at + 4], curves[at + 6]));
+            bounds[i * 4 + 1] = Math.min(Math.min(curves[at + 1], curves[at + 3]), Math.min(curves[at + 5], curves[at + 7]));
+            bounds[i * 4 + 2] = Math.max(Math.max(curves[at], curves[at + 2]), Math.max(curves[at + 4], curves[at + 6]));
+            bounds[i * 4 + 3] = Math.max(Math.max(curves[at + 1], curves[at + 3]), Math.max(curves[at + 5], curves[at + 7]));
+        }
+    }
+
+    public static ArrayList<Intersection> find(SegmentModel first, SegmentModel second) {
+        return new CurveIntersector(Arrays.asList(first, second)).find(ForkJoinPool.commonPool());
+    }
+
+    public ArrayList<Intersection> find(ForkJoinPool pool) {
+        ArrayList<Intersection> result;
+
+        if (count <= SWEEP_CHUNK || pool.getParallelism() == 1) {
+            result = new ArrayList<>();
+            sweep(0, count, result);
+        } else {
+            result = pool.invoke(new SweepTask(0, count));
+        }
+
+        return deduplicate(result);
+    }
+
+    public ArrayList<Intersection> find() {
+        return find(ForkJoinPool.commonPool());
+    }
+
+    public int getSpanCount() {
+        return count;
+    }
+
+    private void sweep(int from, int to, ArrayList<Intersection> result) {
+        for (int i = from; i < to; ++i) {
+            double maxX = bounds[i * 4 + 2];
+
+            for (int j = i + 1; j < count && bounds[j * 4] <= maxX; ++j) {
+                if (bounds[j * 4 + 1] > bounds[i * 4 + 3] || bounds[j * 4 + 3] < bounds[i * 4 + 1]) {
+                    continue;
+                }
+
+                if (owners[i] == owners[j] && spans[i] == spans[j]) {
+                    continue;
+                }
+
+                boolean swap = owners[i] > owners[j] || (owners[i] == owners[j] && spans[i] > spans[j]);
+                int first = swap ? j : i;
+                int second = swap ? i : j;
+                int size = result.size();
+
+                intersect(curves, first * 8, 0, 1, curves, second * 8, 0, 1, first, second, 0, result);
+
+                if (result.size() > size) {
+                    dropJoints(result, size, first, second);
+                }
+            }
+        }
+    }
+
+    private void intersect(double[] a, int aAt, double a0, double a1, double[] b, int bAt, double b0, double b1,
+                           int first, int second, int depth, ArrayList<Intersection> result) {
+        if (!overlaps(a, aAt, b, bAt)) {
+            return;
+        }
+
+        boolean aFlat = flatness(a, aAt) <= tolerance * tolerance;
+        boolean bFlat = flatness(b, bAt) <= tolerance * tolerance;
+
+        if ((aFlat && bFlat) || depth >= MAX_DEPTH) {
+            addCrossing(a, aAt, a0, a1, b, bAt, b0, b1, first, second, result);
+            return;
+        }
+
+        double aMiddle = (a0 + a1) / 2;
+        double bMiddle = (b0 + b1) / 2;
+
+        if (!aFlat && !bFlat) {
+            double[] aHalves = split(a, aAt);
+            double[] bHalves = split(b, bAt);
+            intersect(aHalves, 0, a0, aMiddle, bHalves, 0, b0, bMiddle, first, second, depth + 1, result);
+            intersect(aHalves, 0, a0, aMiddle, bHalves, 6, bMiddle, b1, first, second, depth + 1, result);
+            intersect(aHalves, 6, aMiddle, a1, bHalves, 0, b0, bMiddle, first, second, depth + 1, result);
+            intersect(aHalves, 6, aMiddle, a1, bHalves, 6, bMiddle, b1, first, second, depth + 1, result);
+        } else if (!aFlat) {
+            double[] aHalves = split(a, aAt);
+            intersect(aHalves, 0, a0, aMiddle, b, bAt, b0, b1, first, second, depth + 1, result);
+            intersect(aHalves, 6, aMiddle, a1, b, bAt, b0, b1, first, second, depth + 1, result);
+        } else {
+            double[] bHalves = split(b, bAt);
+            intersect(a, aAt, a0, a1, bHalves, 0, b0, bMiddle, first, second, depth + 1, result);
+            intersect(a, aAt, a0, a1, bHalves, 6, bMiddle, b1, first, second, depth + 1, result);
+        }
+    }
+
+    private void addCrossing(double[] a, int aAt, double a0, double a1, double[] b, int bAt, double b0, double b1,
+                             int first, int second, ArrayList<Intersection> result) {
+        double ax = a[aAt + 6] - a[aAt];
+        double ay = a[aAt + 7] - a[aAt + 1];
+        double bx = b[bAt + 6] - b[bAt];
+        double by = b[bAt + 7] - b[bAt + 1];
+        double denominator = ax * by - ay * bx;
+
+        if (denominator == 0) {
+            return;
+        }
+
+        double dx = b[bAt] - a[aAt];
+        double dy = b[bAt + 1] - a[aAt + 1];
+        double u = (dx * by - dy * bx) / denominator;
+        double v = (dx * ay - dy * ax) / denominator;
+
+        if (u < -EPSILON || u > 1 + EPSILON || v < -EPSILON || v > 1 + EPSILON) {
+            return;
+        }
+
+        u = Math.max(0, Math.min(1, u));
+        v = Math.max(0, Math.min(1, v));
+
+        Intersection intersection = new Intersection();
+        intersection.first = segments.get(owners[first]);
+        intersection.firstSpan = spans[first];
+        intersection.firstT = a0 + u * (a1 - a0);
+        intersection.second = segments.get(owners[second]);
+        intersection.secondSpan = spans[second];
+        intersection.secondT = b0 + v * (b1 - b0);
+        intersection.x = a[aAt] + u * ax;
+        intersection.y = a[aAt + 1] + u * ay;
+        intersection.firstOrder = owners[first];
+        intersection.secondOrder = owners[second];
+        refine(intersection, first * 8, second * 8, a1 - a0, b1 - b0);
+        result.add(intersection);
+    }
+
+    private void refine(Intersection intersection, int aAt, int bAt, double aWidth, double bWidth) {
+        double s = intersection.firstT;
+        double t = intersection.secondT;
+
+        for (int i = 0; i < REFINE_ITERATIONS; ++i) {
+            double fx = evaluate(aAt, s) - evaluate(bAt, t);
+            double fy = evaluate(aAt + 1, s) - evaluate(bAt + 1, t);
+            double ax = derivative(aAt, s);
+            double ay = derivative(aAt + 1, s);
+            double bx = -derivative(bAt, t);
+            double by = -derivative(bAt + 1, t);
+            double determinant = ax * by - ay * bx;
+
+            if (determinant == 0) {
+                return;
+            }
+
+            s -= (fx * by - fy * bx) / determinant;
+            t -= (ax * fy - ay * fx) / determinant;
+
+            if (s < 0 || s > 1 || t < 0 || t > 1) {
+                return;
+            }
+        }
+
+        double x = evaluate(aAt, s);
+        double y = evaluate(aAt + 1, s);
+        double dx = x - evaluate(bAt, t);
+        double dy = y - evaluate(bAt + 1, t);
+        boolean nearby = Math.abs(s - intersection.firstT) <= 2 * aWidth && Math.abs(t - intersection.secondT) <= 2 * bWidth;
+
+        if (dx * dx + dy * dy < EPSILON && nearby) {
+            intersection.firstT = s;
+            intersection.secondT = t;
+            intersection.x = x;
+            intersection.y = y;
+        }
+    }
+
+    private double evaluate(int at, double t) {
+        return Bezier.evaluate(curves[at], curves[at + 2], curves[at + 4], curves[at + 6], t);
+    }
+
+    private double derivative(int at, double t) {
+        return Bezier.derivative(curves[at], curves[at + 2], curves[at + 4], curves[at + 6], t);
+    }
+
+    private void dropJoints(ArrayList<Intersection> result, int from, int first, int second) {
+        double limit = tolerance * 4;
+
+        for (int i = 0; i <= 6; i += 6) {
+            for (int j = 0; j <= 6; j += 6) {
+                double x = curves[first * 8 + i];
+                double y = curves[first * 8 + i + 1];
+                double dx = x - curves[second * 8 + j];
+                double dy = y - curves[second * 8 + j + 1];
+
+                if (dx * dx + dy * dy <= limit * limit && !crossesAt(first, spans[first] + i / 6, second, spans[second] + j / 6)) {
+                    dropJoint(result, from, x, y);
+                }
+            }
+        }
+    }
+
+    private boolean crossesAt(int first, int firstPoint, int second, int secondPoint) {
+        SegmentModel a = segments.get(owners[first]);
+        SegmentModel b = segments.get(owners[second]);
+
+        // Neighbouring spans and the closing joint of a closed path are one point of the curve.
+        if (a == b && (firstPoint == secondPoint || isClosingJoint(a, firstPoint, secondPoint))) {
+            return false;
+        }
+
+        double[] aRays = rays(a, firstPoint);
+        double[] bRays = rays(b, secondPoint);
+
+        // A curve that ends at the point only touches the other one there.
+        if (aRays == null || bRays == null) {
+            return false;
+        }
+
+        double aIn = Math.atan2(aRays[1], aRays[0]);
+        double aOut = Math.atan2(aRays[3], aRays[2]);
+        double bIn = Math.atan2(bRays[1], bRays[0]);
+        double bOut = Math.atan2(bRays[3], bRays[2]);
+        double sector = turn(aIn, aOut);
+        double bInTurn = turn(aIn, bIn);
+        double bOutTurn = turn(aIn, bOut);
+
+        if (isTangent(bInTurn, sector) || isTangent(bOutTurn, sector)) {
+            return false;
+        }
+
+        return (bInTurn < sector) != (bOutTurn < sector);
+    }
+
+    private boolean isClosingJoint(SegmentModel segment, int firstPoint, int secondPoint) {
+        int last = segment.size - 1;
+        return isClosed(segment) && ((firstPoint == 0 && secondPoint == last) || (firstPoint == last && secondPoint == 0));
+    }
+
+    private boolean isClosed(SegmentModel segment) {
+        int last = segment.size - 1;
+        double dx = segment.getX(0) - segment.getX(last);
+        double dy = segment.getY(0) - segment.getY(last);
+        double limit = tolerance * 4;
+
+        return segment.size > 2 && dx * dx + dy * dy <= limit * limit;
+    }
+
+    private double[] rays(SegmentModel segment, int point) {
+        int last = segment.size - 1;
+        int before = point > 0 ? point - 1 : (isClosed(segment) ? last - 1 : -1);
+        int after = point < last ? point : (isClosed(segment) ? 0 : -1);
+
+        if (before < 0 || after < 0) {
+            return null;
+        }
+
+        double x = segment.getX(point);
+        double y = segment.getY(point);
+        double[] rays = new double[4];
+
+        if (!ray(rays, 0, x, y, segment.getInX(before + 1), segment.getInY(before + 1), segment.getOutX(before), segment.getOutY(before),
+                segment.getX(before), segment.getY(before))) {
+            return null;
+        }
+        if (!ray(rays, 2, x, y, segment.getOutX(after), segment.getOutY(after), segment.getInX(after + 1), segment.getInY(after + 1),
+                segment.getX(after + 1), segment.getY(after + 1))) {
+            return null;
+        }
+
+        return rays;
+    }
+
+    private static boolean ray(double[] rays, int at, double x, double y, double x1, double y1, double x2, double y2, double x3, double y3) {
+        double[] candidates = { x1 - x, y1 - y, x2 - x, y2 - y, x3 - x, y3 - y };
+
+        for (int i = 0; i < candidates.length; i += 2) {
+            if (candidates[i] * candidates[i] + candidates[i + 1] * candidates[i + 1] > EPSILON * EPSILON) {
+                rays[at] = candidates[i];
+                rays[at + 1] = candidates[i + 1];
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static double turn(double from, double to) {
+        double turn = (to - from) % (2 * Math.PI);
+        return turn < 0 ? turn + 2 * Math.PI : turn;
+    }
+
+    private static boolean isTangent(double turn, double sector) {
+        return Math.abs(turn) <= ANGLE_EPSILON || Math.abs(2 * Math.PI - turn) <= ANGLE_EPSILON || Math.abs(turn - sector) <= ANGLE_EPSILON;
+    }
+
+    private void dropJoint(ArrayList<Intersection> result, int from, double x, double y) {
+        double limit = tolerance * 4;
+
+        for (int i = result.size() - 1; i >= from; --i) {
+            Intersection intersection = result.get(i);
+            double dx = intersection.x - x;
+            double dy = intersection.y - y;
+
+            if (dx * dx + dy * dy <= limit * limit) {
+                result.remove(i);
+            }
+        }
+    }
+
+    private ArrayList<Intersection> deduplicate(ArrayList<Intersection> found) {
+        found.sort(Comparator.<Intersection>comparingInt(intersection -> intersection.firstOrder)
+                .thenComparingInt(intersection -> intersection.secondOrder)
+                .thenComparingDouble(intersection -> intersection.firstSpan + intersection.firstT));
+
+        ArrayList<Intersection> result = new ArrayList<>(found.size());
+        double limit = tolerance * 4;
+
+        for (Intersection intersection : found) {
+            boolean duplicate = false;
+
+            for (int i = result.size() - 1; i >= 0; --i) {
+                Intersection previous = result.get(i);
+                if (previous.firstOrder != intersection.firstOrder || previous.secondOrder != intersection.secondOrder) {
+                    break;
+                }
+
+                double dx = previous.x - intersection.x;
+                double dy = previous.y - intersection.y;
+                if (dx * dx + dy * dy <= limit * limit) {
+                    duplicate = true;
+                    break;
+                }
+
+                if (intersection.firstSpan + intersection.firstT - previous.firstSpan - previous.firstT > 1) {
+                    break;
+                }
+            }
+
+            if (!duplicate) {
+                result.add(intersection);
+            }
+        }
+
+        return result;
+    }
+
+    private static boolean overlaps(double[] a, int aAt, double[] b, int bAt) {
+        return max(a, aAt) >= min(b, bAt) && max(b, bAt) >= min(a, aAt)
+                && max(a, aAt + 1) >= min(b, bAt + 1) && max(b, bAt + 1) >= min(a, aAt + 1);
+    }
+
+    private static double min(double[] curve, int at) {
+        return Math.min(Math.min(curve[at], curve[at + 2]), Math.min(curve[at + 4], curve[at + 6]));
+    }
+
+    private static double max(double[] curve, int at) {
+        return Math.max(Math.max(curve[at], curve[at + 2]), Math.max(curve[at + 4], curve[at + 6]));
+    }
+
+    private static double flatness(double[] curve, int at) {
+        double ux = 3 * curve[at + 2] - 2 * curve[at] - curve[at + 6];
+        double uy = 3 * curve[at + 3] - 2 * curve[at + 1] - curve[at + 7];
+        double vx = 3 * curve[at + 4] - curve[at] - 2 * curve[at + 6];
+        double vy = 3 * curve[at + 5] - curve[at + 1] - 2 * curve[at + 7];
+
+        return (Math.max(ux * ux, vx * vx) + Math.max(uy * uy, vy * vy)) / 16;
+    }
+
+    private static double[] split(double[] curve, int at) {
+        double x0 = curve[at];
+        double y0 = curve[at + 1];
+        double x01 = (x0 + curve[at + 2]) / 2;
+        double y01 = (y0 + curve[at + 3]) / 2;
+        double x12 = (curve[at + 2] + curve[at + 4]) / 2;
+        double y12 = (curve[at + 3] + curve[at + 5]) / 2;
+        double x23 = (curve[at + 4] + curve[at + 6]) / 2;
+        double y23 = (curve[at + 5] + curve[at + 7]) / 2;
+        double x012 = (x01 + x12) / 2;
+        double y012 = (y01 + y12) / 2;
+        double x123 = (x12 + x23) / 2;
+        double y123 = (y12 + y23) / 2;
+        double xm = (x012 + x123) / 2;
+        double ym = (y012 + y123) / 2;
+
+        return new double[] { x0, y0, x01, y01, x012, y012, xm, ym, x123, y123, x23, y23, curve[at + 6], curve[at + 7] };
+    }
+}
@@ -0,0 +1,5 @@
+package model;
+
+public interface CurvePointBind {
+    void onChange(int point);
+}
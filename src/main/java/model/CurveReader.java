@@ -0,0 +1,22 @@
+package model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+public interface CurveReader extends Closeable {
+    SegmentModel next() throws IOException;
+
+    double getProgress();
+
+    static CurveReader open(File file, Random random) throws IOException {
+        if (SvgReader.isSvg(file)) {
+            return new SvgReader(file, random);
+        }
+        if (CurveBinaryFormat.isBinary(file)) {
+            return new CurveBinaryFormat.BinaryReader(file, random);
+        }
+        return new CurveTextReader(file, random);
+    }
+}
@@ -0,0 +1,8 @@
+package model;
+
+public enum CurveStyle {
+    NORMAL,
+    DASHED,
+    COMBINED,
+    DOTTED
+}
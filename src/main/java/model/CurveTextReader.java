@@ -0,0 +1,79 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+public class CurveTextReader implements CurveReader {
+    private BufferedReader reader;
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private Random random;
+    private long length;
+    private long consumed;
+
+    public CurveTextReader(File file, Random random) throws IOException {
+        this.random = random;
+        reader = Files.newBufferedReader(file.toPath());
+        buffer = new char[1 << 16];
+        position = 0;
+        limit = 0;
+        length = Math.max(file.length(), 1);
+        consumed = 0;
+    }
+
+    @Override
+    public SegmentModel next() throws IOException {
+        StringBuilder datum = new StringBuilder();
+
+        while (true) {
+            if (position == limit) {
+                limit = reader.read(buffer);
+                position = 0;
+
+                if (limit == -1) {
+                    limit = 0;
+                    return datum.length() > 0 ? parse(datum) : null;
+                }
+            }
+
+            int start = position;
+            while (position < limit && buffer[position] != '*') {
+                ++position;
+            }
+
+            datum.append(buffer, start, position - start);
+            consumed += position - start;
+
+            if (position < limit) {
+                ++position;
+                ++consumed;
+
+                if (datum.length() > 0) {
+                    return parse(datum);
+                }
+            }
+        }
+    }
+
+    private SegmentModel parse(StringBuilder datum) throws IOException {
+        try {
+            return new SegmentModel(datum.toString(), random);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException exception) {
+            throw new IOException("Corrupt curve data: " + exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public double getProgress() {
+        return Math.min((double) consumed / length, 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,44 @@
+package model;
+
+import java.util.Random;
+
+public class DocumentGenerator {
+    public static final double SEGMENT_AREA = 400;
+
+    public static double getSize(int segmentCount) {
+        return Math.sqrt(segmentCount) * SEGMENT_AREA;
+    }
+
+    public static CurveDocument generate(long seed, int segmentCount, int pointCount) {
+        double size = getSize(segmentCount);
+        return generate(seed, segmentCount, pointCount, size, size);
+    }
+
+    public static CurveDocument generate(long seed, int segmentCount, int pointCount, double width, double height) {
+        Random random = new Random(seed);
+        CurveDocument document = new CurveDocument(random);
+        CurveStyle[] styles = CurveStyle.values();
+
+        for (int i = 0; i < segmentCount; ++i) {
+            int color = (random.nextInt(0x1000000) << 8) | 0xff;
+            CurveStyle style = styles[random.nextInt(styles.length)];
+            int thickness = (random.nextInt(4) + 1) * 5;
+            SegmentModel segment = new SegmentModel(color, style, thickness, random);
+
+            double x = random.nextDouble() * width;
+            double y = random.nextDouble() * height;
+
+            for (int j = 0; j < pointCount; ++j) {
+                int point = segment.add(x, y);
+                segment.smooth.set(point, random.nextInt(8) != 0);
+
+                x = Math.min(Math.max(x + random.nextDouble() * 160 - 80, 0), width);
+                y = Math.min(Math.max(y + random.nextDouble() * 160 - 80, 0), height);
+            }
+
+            document.add(segment);
+        }
+
+        return document;
+    }
+}
@@ -0,0 +1,17 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class DocumentSnapshot {
+    public final List<SegmentSnapshot> segments;
+
+    public DocumentSnapshot(List<SegmentModel> segments) {
+        ArrayList<SegmentSnapshot> copies = new ArrayList<>(segments.size());
+        for (SegmentModel segment : segments) {
+            copies.add(new SegmentSnapshot(segment));
+        }
+        this.segments = Collections.unmodifiableList(copies);
+    }
+}
@@ -0,0 +1,36 @@
+package model;
+
+public class DragMetrics {
+    public int events;
+    public int updates;
+    public long totalEvents;
+    public long totalUpdates;
+
+    public DragMetrics() {
+        events = 0;
+        updates = 0;
+        totalEvents = 0;
+        totalUpdates = 0;
+    }
+
+    public void event() {
+        ++events;
+        ++totalEvents;
+    }
+
+    public void update() {
+        ++updates;
+        ++totalUpdates;
+    }
+
+    public void reset() {
+        events = 0;
+        updates = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Drag applied %d updates for %d pointer events (%d / %d this session)",
+                updates, events, totalUpdates, totalEvents);
+    }
+}
@@ -0,0 +1,7 @@
+package model;
+
+public interface EditCommand {
+    void undo();
+
+    void redo();
+}
@@ -0,0 +1,77 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.function.Predicate;
+
+public class EditHistory {
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private ArrayDeque<EditCommand> undoStack;
+    private ArrayDeque<EditCommand> redoStack;
+    private int capacity;
+
+    public EditHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public EditHistory(int capacity) {
+        this.capacity = capacity;
+        undoStack = new ArrayDeque<>();
+        redoStack = new ArrayDeque<>();
+    }
+
+    public void push(EditCommand command) {
+        redoStack.clear();
+        undoStack.addLast(command);
+
+        while (undoStack.size() > capacity) {
+            undoStack.removeFirst();
+        }
+    }
+
+    public boolean undo() {
+        EditCommand command = undoStack.pollLast();
+
+        if (command == null) {
+            return false;
+        }
+
+        command.undo();
+        redoStack.addLast(command);
+        return true;
+    }
+
+    public boolean redo() {
+        EditCommand command = redoStack.pollLast();
+
+        if (command == null) {
+            return false;
+        }
+
+        command.redo();
+        undoStack.addLast(command);
+        return true;
+    }
+
+    public boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    public void removeIf(Predicate<EditCommand> filter) {
+        undoStack.removeIf(filter);
+        redoStack.removeIf(filter);
+    }
+
+    public void clear() {
+        undoStack.clear();
+        redoStack.clear();
+    }
+
+    public int size() {
+        return undoStack.size();
+    }
+}
@@ -0,0 +1,540 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class EditJournal {
+    public static final byte IDS = 1;
+    public static final byte ADD = 2;
+    public static final byte REMOVE = 3;
+    public static final byte MOVE_POINT = 4;
+    public static final byte MOVE_CONTROL = 5;
+    public static final byte TOGGLE = 6;
+    public static final byte STYLE = 7;
+    public static final byte CONTROL_OFFSET = 8;
+    public static final byte TRANSFORM = 9;
+
+    public static final int COMPACT_RECORDS = 20000;
+    public static final long COMPACT_NANOS = 60_000_000_000L;
+
+    private File directory;
+    private File file;
+    private String prefix;
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private ByteArrayOutputStream pending;
+    private DataOutputStream output;
+    private ExecutorService writer;
+    private FileChannel channel;
+    private int records;
+    private long compacted;
+    private long generation;
+    private volatile IOException failure;
+
+    public EditJournal(File directory) {
+        this.directory = directory;
+        pending = new ByteArrayOutputStream();
+        output = new DataOutputStream(pending);
+        writer = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "curve-journal"));
+        records = 0;
+        compacted = System.nanoTime();
+        generation = -1;
+
+        try {
+            lock();
+        } catch (IOException exception) {
+            failure = exception;
+        }
+    }
+
+    public boolean exists() {
+        return file != null && file.length() > 0;
+    }
+
+    public int recover(CurveDocument document) throws IOException {
+        HashMap<Long, SegmentModel> segments = new HashMap<>();
+        int applied = 0;
+
+        if (file == null) {
+            throw new IOException("Journal is not available.");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+        try {
+            if (buffer.get() != IDS) {
+                throw new IOException("Journal does not start with a segment table.");
+            }
+
+            File base = base(buffer.getLong());
+            if (!base.exists()) {
+                throw new IOException("Journal references a missing base document.");
+            }
+            document.load(base);
+
+            int count = buffer.getInt();
+            if (count != document.segments.size()) {
+                throw new IOException("Journal does not match its base document.");
+            }
+            for (int i = 0; i < count; ++i) {
+                segments.put(buffer.getLong(), document.segments.get(i));
+            }
+        } catch (BufferUnderflowException exception) {
+            throw new IOException("Journal is truncated.");
+        }
+
+        try {
+            // Replay stops at the first record that is torn or fails validation; everything
+            // applied before it is kept.
+            while (buffer.hasRemaining() && replay(buffer, document, segments)) {
+                ++applied;
+            }
+        } catch (BufferUnderflowException exception) {
+            // The last record was cut short by the crash; everything before it is intact.
+        }
+
+        return applied;
+    }
+
+    private static boolean replay(ByteBuffer buffer, CurveDocument document, HashMap<Long, SegmentModel> segments) {
+        byte type = buffer.get();
+
+        if (type == ADD) {
+            long id = buffer.getLong();
+            int color = buffer.getInt();
+            int style = buffer.get();
+            int thickness = buffer.getInt();
+            int size = buffer.getInt();
+
+            if (!isStyle(style) || !SegmentModel.isValidThickness(thickness) || size < 0
+                    || CurveBinaryFormat.dataSize(size, false) > buffer.remaining()) {
+                return false;
+            }
+
+            SegmentModel segment = new SegmentModel(color, CurveStyle.values()[style], thickness, document.random);
+            CurveBinaryFormat.readPoints(buffer, segment, size, false);
+            document.add(segment);
+            segments.put(id, segment);
+            return true;
+        }
+
+        SegmentModel segment = segments.get(buffer.getLong());
+
+        if (segment == null) {
+            return false;
+        }
+
+        if (type == REMOVE) {
+            document.remove(segment);
+        } else if (type == MOVE_POINT) {
+            int point = buffer.getInt();
+            double x = buffer.getDouble();
+            double y = buffer.getDouble();
+
+            if (point < 0 || point >= segment.size) {
+                return false;
+            }
+            segment.movePoint(point, x, y);
+        } else if (type == MOVE_CONTROL || type == CONTROL_OFFSET) {
+            int point = buffer.getInt();
+            int control = buffer.get();
+            double x = buffer.getDouble();
+            double y = buffer.getDouble();
+
+            if (point < 0 || point >= segment.size || control < 0 || control >= segment.getControlCount(point)) {
+                return false;
+            }
+
+            boolean out = segment.isOutControl(point, control);
+            if (type == MOVE_CONTROL) {
+                segment.moveControl(point, out, x, y);
+            } else {
+                segment.setControlOffset(point, out, x, y);
+            }
+        } else if (type == TOGGLE) {
+            int point = buffer.getInt();
+
+            if (point < 0 || point >= segment.size) {
+                return false;
+            }
+            segment.toggle(point);
+        } else if (type == TRANSFORM) {
+            new SegmentTransform(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+                    buffer.getDouble(), buffer.getDouble(), buffer.getDouble()).apply(segment);
+        } else if (type == STYLE) {
+            int color = buffer.getInt();
+            int style = buffer.get();
+            int thickness = buffer.getInt();
+
+            if (!isStyle(style) || !SegmentModel.isValidThickness(thickness)) {
+                return false;
+            }
+            segment.color = color;
+            segment.style = CurveStyle.values()[style];
+            segment.thickness = thickness;
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+    private static boolean isStyle(int ordinal) {
+        return ordinal >= 0 && ordinal < CurveStyle.values().length;
+    }
+
+    public void segmentAdded(SegmentModel segment) {
+        try {
+            SegmentSnapshot snapshot = new SegmentSnapshot(segment);
+            output.writeByte(ADD);
+            output.writeLong(segment.id);
+            output.writeInt(segment.color);
+            output.writeByte(segment.style.ordinal());
+            output.writeInt(segment.thickness);
+            output.writeInt(snapshot.size());
+            CurveBinaryFormat.writeSegmentData(output, snapshot, false);
+            ++records;
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public void segmentRemoved(SegmentModel segment) {
+        try {
+            output.writeByte(REMOVE);
+            output.writeLong(segment.id);
+            ++records;
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public void pointMoved(SegmentModel segment, int point, double x, double y) {
+        try {
+            output.writeByte(MOVE_POINT);
+            output.writeLong(segment.id);
+            output.writeInt(point);
+            output.writeDouble(x);
+            output.writeDouble(y);
+            ++records;
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public void controlMoved(SegmentModel segment, int point, int control, double x, double y) {
+        try {
+            output.writeByte(MOVE_CONTROL);
+            output.writeLong(segment.id);
+            output.writeInt(point);
+            output.writeByte(control);
+            output.writeDouble(x);
+            output.writeDouble(y);
+            ++records;
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public void controlOffsetChanged(SegmentModel segment, int point, int control, double offsetX, double offsetY) {
+        try {
+            output.writeByte(CONTROL_OFFSET);
+            output.writeLong(segment.id);
+            output.writeInt(point);
+            output.writeByte(control);
+            output.writeDouble(offsetX);
+            output.writeDouble(offsetY);
+            ++records;
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public void pointToggled(SegmentModel segment, int point) {
+        try {
+            output.writeByte(TOGGLE);
+            output.writeLong(segment.id);
+            output.writeInt(point);
+            ++records;
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public void segmentTransformed(SegmentModel segment, SegmentTransform transform) {
+        try {
+            output.writeByte(TRANSFORM);
+            output.writeLong(segment.id);
+            output.writeDouble(transform.scaleX);
+            output.writeDouble(transform.shearX);
+            output.writeDouble(transform.translateX);
+            output.writeDouble(transform.shearY);
+            output.writeDouble(transform.scaleY);
+            output.writeDouble(transform.translateY);
+            ++records;
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public void styleChanged(SegmentModel segment) {
+        try {
+            output.writeByte(STYLE);
+            output.writeLong(segment.id);
+            output.writeInt(segment.color);
+            output.writeByte(segment.style.ordinal());
+            output.writeInt(segment.thickness);
+            ++records;
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public void flush() throws IOException {
+        checkFailure();
+
+        if (pending.size() > 0) {
+            byte[] data = pending.toByteArray();
+            pending.reset();
+
+            writer.execute(() -> {
+                try {
+                    if (channel != null) {
+                        channel.write(ByteBuffer.wrap(data));
+                        channel.force(false);
+                    }
+                } catch (IOException exception) {
+                    failure = exception;
+                }
+            });
+        }
+    }
+
+    public boolean shouldCompact(long now) throws IOException {
+        checkFailure();
+        return records >= COMPACT_RECORDS || (records > 0 && now - compacted >= COMPACT_NANOS);
+    }
+
+    public void compact(DocumentSnapshot snapshot) {
+        pending.reset();
+        records = 0;
+        compacted = System.nanoTime();
+
+        writer.execute(() -> {
+            if (file == null) {
+                return;
+            }
+
+            try {
+                Files.createDirectories(directory.toPath());
+
+                if (generation < 0) {
+                    generation = readGeneration();
+                }
+
+                // The new base gets a fresh name so the old journal and its base stay intact
+                // until the new journal replaces the old one in a single rename.
+                long next = generation + 1;
+                CurveBinaryFormat.write(snapshot, base(next), false);
+
+                ByteBuffer ids = ByteBuffer.allocate(1 + Long.BYTES + Integer.BYTES + Long.BYTES * snapshot.segments.size());
+                ids.put(IDS);
+                ids.putLong(next);
+                ids.putInt(snapshot.segments.size());
+                for (SegmentSnapshot segment : snapshot.segments) {
+                    ids.putLong(segment.id);
+                }
+                ids.flip();
+
+                Path target = file.toPath();
+                Path temporary = Files.createTempFile(directory.toPath(), file.getName(), ".tmp");
+                try {
+                    try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                        output.write(ids);
+                        output.force(false);
+                    }
+
+                    if (channel != null) {
+                        channel.close();
+                        channel = null;
+                    }
+
+                    try {
+                        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    } catch (AtomicMoveNotSupportedException exception) {
+                        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } finally {
+                    Files.deleteIfExists(temporary);
+                }
+
+                generation = next;
+                channel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                deleteBases(generation);
+            } catch (IOException exception) {
+                failure = exception;
+            }
+        });
+    }
+
+    void sync() throws IOException {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException | ExecutionException exception) {
+            throw new IOException(exception);
+        }
+        checkFailure();
+    }
+
+    public void close() {
+        pending.reset();
+
+        writer.execute(() -> {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+                if (file != null) {
+                    Files.deleteIfExists(file.toPath());
+                    deleteBases(-1);
+                }
+                if (lock != null) {
+                    lock.release();
+                    lockChannel.close();
+                }
+            } catch (IOException exception) {
+                failure = exception;
+            }
+        });
+
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException exception = failure;
+
+        if (exception != null) {
+            failure = null;
+            // Records may have been lost, so the next check rewrites the base and journal.
+            records = COMPACT_RECORDS;
+            throw exception;
+        }
+    }
+
+    void abandon() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (channel != null) {
+            channel.close();
+        }
+        if (lock != null) {
+            lock.release();
+            lockChannel.close();
+        }
+    }
+
+    private void lock() throws IOException {
+        Files.createDirectories(directory.toPath());
+
+        int last = -1;
+        String[] names = directory.list((parent, name) -> name.matches("recovery-\\d+\\.lock"));
+        if (names != null) {
+            for (String name : names) {
+                last = Math.max(last, Integer.parseInt(name.substring(9, name.length() - 5)));
+            }
+        }
+
+        // Every running editor holds the lock of its own slot. A free slot that still has a
+        // journal belongs to an editor that crashed, so it is taken first to recover it.
+        for (int slot = 0; slot <= last; ++slot) {
+            if (new File(directory, "recovery-" + slot + ".journal").length() > 0 && lock(slot)) {
+                return;
+            }
+        }
+        for (int slot = 0; ; ++slot) {
+            if (lock(slot)) {
+                return;
+            }
+        }
+    }
+
+    private boolean lock(int slot) throws IOException {
+        FileChannel candidate = FileChannel.open(new File(directory, "recovery-" + slot + ".lock").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+
+        try {
+            acquired = candidate.tryLock();
+        } catch (OverlappingFileLockException exception) {
+            acquired = null;
+        }
+
+        if (acquired == null) {
+            candidate.close();
+            return false;
+        }
+
+        lockChannel = candidate;
+        lock = acquired;
+        prefix = "recovery-" + slot;
+        file = new File(directory, prefix + ".journal");
+        return true;
+    }
+
+    private File base(long generation) {
+        return new File(directory, prefix + "-" + generation + ".curve");
+    }
+
+    private long readGeneration() throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        try (FileChannel input = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(1 + Long.BYTES);
+            while (header.hasRemaining() && input.read(header) >= 0) {
+            }
+            header.flip();
+            return header.remaining() == header.capacity() && header.get() == IDS ? header.getLong() : 0;
+        }
+    }
+
+    private void deleteBases(long keep) throws IOException {
+        File[] files = directory.listFiles((parent, name) -> name.startsWith(prefix + "-") && name.endsWith(".curve"));
+
+        if (files != null) {
+            for (File each : files) {
+                if (!each.equals(base(keep))) {
+                    Files.deleteIfExists(each.toPath());
+                }
+            }
+        }
+    }
+}
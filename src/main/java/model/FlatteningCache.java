@@ -0,0 +1,150 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+public class FlatteningCache {
+    public static final double DEFAULT_TOLERANCE = 0.25;
+
+    private static class Entry {
+        private ArrayList<Polyline> spans;
+        private BitSet valid;
+        private Polyline outline;
+        private boolean outlineValid;
+        private CurvePointBind binding;
+    }
+
+    private HashMap<SegmentModel, Entry> entries;
+    private double tolerance;
+
+    public FlatteningCache() {
+        this(DEFAULT_TOLERANCE);
+    }
+
+    public FlatteningCache(double tolerance) {
+        this.tolerance = tolerance;
+        entries = new HashMap<>();
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public Polyline get(SegmentModel segment) {
+        Entry entry = prepare(segment);
+
+        if (!entry.outlineValid) {
+            entry.outline.clear();
+            for (int i = 0; i < entry.spans.size(); ++i) {
+                entry.outline.append(getSpan(segment, entry, i), i == 0 ? 0 : 1);
+            }
+            if (segment.size == 1) {
+                entry.outline.add(segment.getX(0), segment.getY(0));
+            }
+            entry.outlineValid = true;
+        }
+
+        return entry.outline;
+    }
+
+    public Polyline getSpan(SegmentModel segment, int span) {
+        return getSpan(segment, prepare(segment), span);
+    }
+
+    public double distanceSquared(SegmentModel segment, int span, double x, double y) {
+        return getSpan(segment, span).distanceSquared(x, y);
+    }
+
+    public double length(SegmentModel segment, int span) {
+        return getSpan(segment, span).length();
+    }
+
+    public void invalidate(SegmentModel segment, int point) {
+        Entry entry = entries.get(segment);
+
+        if (entry != null) {
+            invalidate(entry, point);
+        }
+    }
+
+    public void invalidate(SegmentModel segment) {
+        Entry entry = entries.get(segment);
+
+        if (entry != null) {
+            entry.valid.clear();
+            entry.outlineValid = false;
+        }
+    }
+
+    public void remove(SegmentModel segment) {
+        Entry entry = entries.remove(segment);
+
+        if (entry != null) {
+            segment.unbind(entry.binding);
+        }
+    }
+
+    public void clear() {
+        for (Map.Entry<SegmentModel, Entry> entry : entries.entrySet()) {
+            entry.getKey().unbind(entry.getValue().binding);
+        }
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private Entry prepare(SegmentModel segment) {
+        Entry entry = entries.get(segment);
+
+        if (entry == null) {
+            Entry created = new Entry();
+            created.spans = new ArrayList<>();
+            created.valid = new BitSet();
+            created.outline = new Polyline();
+            created.binding = point -> invalidate(created, point);
+            segment.bind(created.binding);
+            entries.put(segment, created);
+            entry = created;
+        }
+
+        int count = segment.getSpanCount();
+        if (entry.spans.size() != count) {
+            while (entry.spans.size() > count) {
+                entry.spans.remove(entry.spans.size() - 1);
+            }
+            while (entry.spans.size() < count) {
+                entry.spans.add(new Polyline());
+            }
+            entry.valid.clear(Math.max(count - 1, 0), Math.max(count, entry.valid.length()));
+            entry.outlineValid = false;
+        }
+
+        return entry;
+    }
+
+    private Polyline getSpan(SegmentModel segment, Entry entry, int span) {
+        Polyline polyline = entry.spans.get(span);
+
+        if (!entry.valid.get(span)) {
+            polyline.clear();
+            polyline.add(segment.getX(span), segment.getY(span));
+            Bezier.flatten(segment.getX(span), segment.getY(span), segment.getOutX(span), segment.getOutY(span),
+                    segment.getInX(span + 1), segment.getInY(span + 1), segment.getX(span + 1), segment.getY(span + 1), tolerance, polyline);
+            entry.valid.set(span, true);
+        }
+
+        return polyline;
+    }
+
+    private static void invalidate(Entry entry, int point) {
+        if (point > 0) {
+            entry.valid.clear(point - 1);
+        }
+        entry.valid.clear(point);
+        entry.outlineValid = false;
+    }
+}
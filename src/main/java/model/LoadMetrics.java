@@ -0,0 +1,56 @@
+package model;
+
+public class LoadMetrics {
+    public static final long STALL_NANOS = 50_000_000L;
+
+    public long started;
+    public long finished;
+    public int segments;
+    public int batches;
+    public long publishNanos;
+    public long longestFrame;
+    public int stalledFrames;
+    private long lastFrame;
+
+    public LoadMetrics() {
+        started = System.nanoTime();
+        finished = 0;
+        segments = 0;
+        batches = 0;
+        publishNanos = 0;
+        longestFrame = 0;
+        stalledFrames = 0;
+        lastFrame = 0;
+    }
+
+    public void batch(int count, long nanos) {
+        segments += count;
+        ++batches;
+        publishNanos += nanos;
+    }
+
+    public void frame(long now) {
+        if (lastFrame != 0) {
+            long gap = now - lastFrame;
+            longestFrame = Math.max(longestFrame, gap);
+            if (gap > STALL_NANOS) {
+                ++stalledFrames;
+            }
+        }
+        lastFrame = now;
+    }
+
+    public void finish() {
+        finished = System.nanoTime();
+    }
+
+    public long getElapsedMillis() {
+        return ((finished != 0 ? finished : System.nanoTime()) - started) / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Loaded %d segments in %d ms (%d batches, %d ms publishing, longest frame %d ms, %d stalled frames)",
+                segments, getElapsedMillis(), batches, publishNanos / 1_000_000, longestFrame / 1_000_000, stalledFrames);
+    }
+}
@@ -0,0 +1,47 @@
+package model;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.geom.Path2D;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+public class PngExporter {
+    public static final float MITER_LIMIT = 10;
+
+    public static void write(List<SegmentModel> segments, File file, double scale) throws IOException {
+        write(segments, file, scale, 1);
+    }
+
+    public static void write(List<SegmentModel> segments, File file, double scale, int threads) throws IOException {
+        new TiledRasterizer(segments, scale).write(file, threads);
+    }
+
+    public static Path2D.Double createPath(SegmentModel segment) {
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(segment.getX(0), segment.getY(0));
+        for (int i = 0; i < segment.getSpanCount(); ++i) {
+            path.curveTo(segment.getOutX(i), segment.getOutY(i), segment.getInX(i + 1), segment.getInY(i + 1), segment.getX(i + 1), segment.getY(i + 1));
+        }
+        return path;
+    }
+
+    public static BasicStroke createStroke(SegmentModel segment) {
+        double[] dashes = SegmentModel.getDashArray(segment.style, segment.thickness);
+
+        if (dashes.length == 0) {
+            return new BasicStroke(segment.thickness, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER, MITER_LIMIT);
+        }
+
+        float[] pattern = new float[dashes.length];
+        for (int i = 0; i < dashes.length; ++i) {
+            pattern[i] = (float) dashes[i];
+        }
+        return new BasicStroke(segment.thickness, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER, MITER_LIMIT, pattern, 0);
+    }
+
+    public static Color toColor(int color) {
+        return new Color(color >>> 24, (color >>> 16) & 0xff, (color >>> 8) & 0xff, color & 0xff);
+    }
+}
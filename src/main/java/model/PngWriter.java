@@ -0,0 +1,170 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+public class PngWriter implements Closeable {
+    public static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+    public static final int BYTES_PER_PIXEL = 3;
+    public static final int FILTER_SUB = 1;
+
+    private static final long ADLER_BASE = 65521;
+
+    public static class Block {
+        public byte[] data;
+        public int length;
+        public long adler;
+        public long rawLength;
+    }
+
+    private DataOutputStream output;
+    private CRC32 crc;
+    private long adler;
+    private boolean started;
+    private boolean finished;
+
+    public PngWriter(OutputStream output, int width, int height) throws IOException {
+        this.output = new DataOutputStream(output);
+        crc = new CRC32();
+        adler = 1;
+        started = false;
+        finished = false;
+
+        this.output.write(SIGNATURE);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream fields = new DataOutputStream(header);
+        fields.writeInt(width);
+        fields.writeInt(height);
+        fields.writeByte(8);
+        fields.writeByte(2);
+        fields.writeByte(0);
+        fields.writeByte(0);
+        fields.writeByte(0);
+        writeChunk("IHDR", header.toByteArray(), header.size());
+    }
+
+    public static Block compress(int[] pixels, int width, int rows, int level, boolean last) {
+        int stride = 1 + width * BYTES_PER_PIXEL;
+        byte[] raw = new byte[stride * rows];
+
+        for (int row = 0; row < rows; ++row) {
+            int offset = row * stride;
+            int previous = 0;
+            raw[offset] = FILTER_SUB;
+
+            for (int column = 0; column < width; ++column) {
+                int pixel = pixels[row * width + column];
+                int at = offset + 1 + column * BYTES_PER_PIXEL;
+
+                raw[at] = (byte) ((pixel >>> 16) - (previous >>> 16));
+                raw[at + 1] = (byte) ((pixel >>> 8) - (previous >>> 8));
+                raw[at + 2] = (byte) (pixel - previous);
+                previous = pixel;
+            }
+        }
+
+        Adler32 checksum = new Adler32();
+        checksum.update(raw, 0, raw.length);
+
+        Deflater deflater = new Deflater(level, true);
+        deflater.setInput(raw);
+        if (last) {
+            deflater.finish();
+        }
+
+        byte[] data = new byte[Math.max(1024, raw.length / 4)];
+        int length = 0;
+
+        while (true) {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+
+            int written = deflater.deflate(data, length, data.length - length, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+            length += written;
+
+            if (last ? deflater.finished() : length < data.length) {
+                break;
+            }
+        }
+        deflater.end();
+
+        Block block = new Block();
+        block.data = data;
+        block.length = length;
+        block.adler = checksum.getValue();
+        block.rawLength = raw.length;
+        return block;
+    }
+
+    public void write(Block block) throws IOException {
+        if (!started) {
+            writeChunk("IDAT", new byte[] { 0x78, 0x01 }, 2);
+            started = true;
+        }
+
+        writeChunk("IDAT", block.data, block.length);
+        adler = combine(adler, block.adler, block.rawLength);
+    }
+
+    public void finish() throws IOException {
+        if (!finished) {
+            writeChunk("IDAT", new byte[] { (byte) (adler >>> 24), (byte) (adler >>> 16), (byte) (adler >>> 8), (byte) adler }, 4);
+            writeChunk("IEND", new byte[0], 0);
+            output.flush();
+            finished = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        output.close();
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+
+        crc.reset();
+        crc.update(name);
+        crc.update(data, 0, length);
+
+        output.writeInt(length);
+        output.write(name);
+        output.write(data, 0, length);
+        output.writeInt((int) crc.getValue());
+    }
+
+    private static long combine(long first, long second, long secondLength) {
+        long remainder = secondLength % ADLER_BASE;
+        long sum1 = first & 0xffff;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+
+        sum1 += (second & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((first >>> 16) & 0xffff) + ((second >>> 16) & 0xffff) + ADLER_BASE - remainder;
+
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= ADLER_BASE << 1) {
+            sum2 -= ADLER_BASE << 1;
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+
+        return (sum2 << 16) | sum1;
+    }
+}
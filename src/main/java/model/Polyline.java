@@ -0,0 +1,88 @@
+package model;
+
+import java.util.Arrays;
+
+public class Polyline {
+    public double[] xs;
+    public double[] ys;
+    public int count;
+    public double minX;
+    public double minY;
+    public double maxX;
+    public double maxY;
+
+    public Polyline() {
+        xs = new double[8];
+        ys = new double[8];
+        clear();
+    }
+
+    public void clear() {
+        count = 0;
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        maxX = Double.NEGATIVE_INFINITY;
+        maxY = Double.NEGATIVE_INFINITY;
+    }
+
+    public void add(double x, double y) {
+        if (count == xs.length) {
+            xs = Arrays.copyOf(xs, count * 2);
+            ys = Arrays.copyOf(ys, count * 2);
+        }
+
+        xs[count] = x;
+        ys[count] = y;
+        ++count;
+
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+    }
+
+    public void append(Polyline other, int from) {
+        for (int i = from; i < other.count; ++i) {
+            add(other.xs[i], other.ys[i]);
+        }
+    }
+
+    public double getExtent() {
+        return count == 0 ? 0 : Math.max(maxX - minX, maxY - minY);
+    }
+
+    public double length() {
+        double length = 0;
+
+        for (int i = 1; i < count; ++i) {
+            length += Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+        }
+
+        return length;
+    }
+
+    public double distanceSquared(double x, double y) {
+        double best = Double.MAX_VALUE;
+
+        if (count == 1) {
+            double dx = xs[0] - x;
+            double dy = ys[0] - y;
+            return dx * dx + dy * dy;
+        }
+
+        for (int i = 1; i < count; ++i) {
+            double x0 = xs[i - 1];
+            double y0 = ys[i - 1];
+            double dx = xs[i] - x0;
+            double dy = ys[i] - y0;
+            double squared = dx * dx + dy * dy;
+            double t = squared == 0 ? 0 : Math.max(0, Math.min(1, ((x - x0) * dx + (y - y0) * dy) / squared));
+            double ex = x0 + t * dx - x;
+            double ey = y0 + t * dy - y;
+
+            best = Math.min(best, ex * ex + ey * ey);
+        }
+
+        return best;
+    }
+}
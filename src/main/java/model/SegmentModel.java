@@ -0,0 +1,479 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+public class SegmentModel {
+    public static final int INITIAL_CAPACITY = 4;
+    public static final int MIN_THICKNESS = 5;
+    public static final int MAX_THICKNESS = 20;
+    public static final int THICKNESS_STEP = 5;
+
+    public long id;
+    public int color;
+    public CurveStyle style;
+    public int thickness;
+    public Random random;
+    public int size;
+    public double[] anchors;
+    public double[] inOffsets;
+    public double[] outOffsets;
+    public BitSet smooth;
+    public ArrayList<CurvePointBind> callbacks;
+    private ArcLengthTable arcLengths;
+
+    public SegmentModel(Random random) {
+        this.random = random;
+        color = 0;
+        style = null;
+        thickness = 0;
+        size = 0;
+        anchors = new double[INITIAL_CAPACITY * 2];
+        inOffsets = new double[INITIAL_CAPACITY * 2];
+        outOffsets = new double[INITIAL_CAPACITY * 2];
+        smooth = new BitSet();
+        callbacks = new ArrayList<>();
+    }
+
+    public SegmentModel(int color, CurveStyle style, int thickness, Random random) {
+        this(random);
+        this.color = color;
+        this.style = style;
+        this.thickness = thickness;
+    }
+
+    public SegmentModel(String data, Random random) {
+        this(random);
+
+        String[] parts = data.split("\\|");
+        int field = 0;
+
+        for (String part : parts) {
+            if (part.isEmpty()) {
+                continue;
+            }
+
+            if (field == 0) {
+                color = parseColor(part);
+            } else if (field == 1) {
+                style = CurveStyle.valueOf(part);
+            } else if (field == 2) {
+                thickness = Integer.parseInt(part);
+                if (!isValidThickness(thickness)) {
+                    throw new IllegalArgumentException("Unsupported thickness " + thickness + ".");
+                }
+            } else {
+                parsePoint(part);
+            }
+
+            ++field;
+        }
+    }
+
+    public SegmentModel(SegmentSnapshot snapshot, Random random) {
+        this(snapshot, 0, 0, random);
+    }
+
+    public SegmentModel(SegmentSnapshot snapshot, double deltaX, double deltaY, Random random) {
+        this(snapshot.color, snapshot.style, snapshot.thickness, random);
+        id = snapshot.id;
+        ensureCapacity(snapshot.size());
+        size = snapshot.size();
+
+        for (int i = 0; i < size; ++i) {
+            anchors[i * 2] = snapshot.points[i * 2] + deltaX;
+            anchors[i * 2 + 1] = snapshot.points[i * 2 + 1] + deltaY;
+        }
+
+        int index = 0;
+        for (int i = 0; i < size; ++i) {
+            smooth.set(i, snapshot.smooth[i]);
+
+            if (i > 0) {
+                inOffsets[i * 2] = snapshot.controls[index++];
+                inOffsets[i * 2 + 1] = snapshot.controls[index++];
+            }
+
+            if (i < size - 1) {
+                outOffsets[i * 2] = snapshot.controls[index++];
+                outOffsets[i * 2 + 1] = snapshot.controls[index++];
+            }
+        }
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity * 2 > anchors.length) {
+            int length = Math.max(capacity * 2, anchors.length * 2);
+            anchors = Arrays.copyOf(anchors, length);
+            inOffsets = Arrays.copyOf(inOffsets, length);
+            outOffsets = Arrays.copyOf(outOffsets, length);
+        }
+    }
+
+    public int add(double x, double y) {
+        ensureCapacity(size + 1);
+
+        int index = size++;
+        anchors[index * 2] = x;
+        anchors[index * 2 + 1] = y;
+        inOffsets[index * 2] = 0;
+        inOffsets[index * 2 + 1] = 0;
+        outOffsets[index * 2] = 0;
+        outOffsets[index * 2 + 1] = 0;
+        smooth.set(index);
+
+        if (index > 0) {
+            randomOffset(outOffsets, index - 1);
+            if (index > 1) {
+                outOffsets[(index - 1) * 2] = -inOffsets[(index - 1) * 2];
+                outOffsets[(index - 1) * 2 + 1] = -inOffsets[(index - 1) * 2 + 1];
+            }
+            randomOffset(inOffsets, index);
+        }
+
+        return index;
+    }
+
+    public void removeLast() {
+        --size;
+        smooth.clear(size);
+
+        if (size > 0) {
+            outOffsets[(size - 1) * 2] = 0;
+            outOffsets[(size - 1) * 2 + 1] = 0;
+        }
+    }
+
+    public void bind(CurvePointBind callback) {
+        callbacks.add(callback);
+    }
+
+    public void unbind(CurvePointBind callback) {
+        callbacks.remove(callback);
+    }
+
+    public void update(int point) {
+        if (arcLengths != null) {
+            arcLengths.invalidate(point);
+        }
+        for (CurvePointBind callback : callbacks) {
+            callback.onChange(point);
+        }
+    }
+
+    public double getX(int point) {
+        return anchors[point * 2];
+    }
+
+    public double getY(int point) {
+        return anchors[point * 2 + 1];
+    }
+
+    public boolean isSmooth(int point) {
+        return smooth.get(point);
+    }
+
+    public double getInX(int point) {
+        return smooth.get(point) ? anchors[point * 2] + inOffsets[point * 2] : anchors[point * 2];
+    }
+
+    public double getInY(int point) {
+        return smooth.get(point) ? anchors[point * 2 + 1] + inOffsets[point * 2 + 1] : anchors[point * 2 + 1];
+    }
+
+    public double getOutX(int point) {
+        return smooth.get(point) ? anchors[point * 2] + outOffsets[point * 2] : anchors[point * 2];
+    }
+
+    public double getOutY(int point) {
+        return smooth.get(point) ? anchors[point * 2 + 1] + outOffsets[point * 2 + 1] : anchors[point * 2 + 1];
+    }
+
+    public double getControlX(int point, boolean out) {
+        return out ? getOutX(point) : getInX(point);
+    }
+
+    public double getControlY(int point, boolean out) {
+        return out ? getOutY(point) : getInY(point);
+    }
+
+    public double getHandleX(int point, boolean out) {
+        return anchors[point * 2] + (out ? outOffsets : inOffsets)[point * 2];
+    }
+
+    public double getHandleY(int point, boolean out) {
+        return anchors[point * 2 + 1] + (out ? outOffsets : inOffsets)[point * 2 + 1];
+    }
+
+    public int getControlCount(int point) {
+        return (point > 0 ? 1 : 0) + (point < size - 1 ? 1 : 0);
+    }
+
+    public boolean isOutControl(int point, int control) {
+        return point == 0 || control == 1;
+    }
+
+    public void movePoint(int point, double x, double y) {
+        anchors[point * 2] = x;
+        anchors[point * 2 + 1] = y;
+        update(point);
+    }
+
+    public void moveControl(int point, boolean out, double x, double y) {
+        double[] offsets = out ? outOffsets : inOffsets;
+        offsets[point * 2] = x - anchors[point * 2];
+        offsets[point * 2 + 1] = y - anchors[point * 2 + 1];
+
+        if (point > 0 && point < size - 1) {
+            double[] other = out ? inOffsets : outOffsets;
+            double distance = Math.sqrt(other[point * 2] * other[point * 2] + other[point * 2 + 1] * other[point * 2 + 1]);
+            double angle = Math.atan2(offsets[point * 2 + 1], offsets[point * 2]) + Math.PI;
+
+            other[point * 2] = distance * Math.cos(angle);
+            other[point * 2 + 1] = distance * Math.sin(angle);
+        }
+
+        update(point);
+    }
+
+    public void setControlOffset(int point, boolean out, double offsetX, double offsetY) {
+        double[] offsets = out ? outOffsets : inOffsets;
+        offsets[point * 2] = offsetX;
+        offsets[point * 2 + 1] = offsetY;
+        update(point);
+    }
+
+    public double[] getOffsets(int point) {
+        double[] offsets = new double[getControlCount(point) * 2];
+        int index = 0;
+
+        if (point > 0) {
+            offsets[index++] = inOffsets[point * 2];
+            offsets[index++] = inOffsets[point * 2 + 1];
+        }
+
+        if (point < size - 1) {
+            offsets[index++] = outOffsets[point * 2];
+            offsets[index] = outOffsets[point * 2 + 1];
+        }
+
+        return offsets;
+    }
+
+    public void setOffsets(int point, double[] offsets) {
+        int index = 0;
+
+        if (point > 0) {
+            inOffsets[point * 2] = offsets[index++];
+            inOffsets[point * 2 + 1] = offsets[index++];
+        }
+
+        if (point < size - 1) {
+            outOffsets[point * 2] = offsets[index++];
+            outOffsets[point * 2 + 1] = offsets[index];
+        }
+
+        update(point);
+    }
+
+    public void toggle(int point) {
+        smooth.flip(point);
+        update(point);
+    }
+
+    public int getSpanCount() {
+        return Math.max(size - 1, 0);
+    }
+
+    public void invalidate() {
+        if (arcLengths != null) {
+            arcLengths.invalidate();
+        }
+    }
+
+    public ArcLengthTable getArcLengths() {
+        if (arcLengths == null) {
+            arcLengths = new ArcLengthTable(this);
+        }
+        return arcLengths;
+    }
+
+    public double getLength() {
+        return getArcLengths().getLength();
+    }
+
+    public double getSpanLength(int span) {
+        return getArcLengths().getSpanLength(span);
+    }
+
+    public double getParameterAtLength(double distance) {
+        return getArcLengths().getParameter(distance);
+    }
+
+    public double getXAt(double parameter) {
+        if (size < 2) {
+            return size == 0 ? 0 : anchors[0];
+        }
+
+        int span = Math.min((int) parameter, getSpanCount() - 1);
+        double t = parameter - span;
+        return Bezier.evaluate(anchors[span * 2], getOutX(span), getInX(span + 1), anchors[span * 2 + 2], t);
+    }
+
+    public double getYAt(double parameter) {
+        if (size < 2) {
+            return size == 0 ? 0 : anchors[1];
+        }
+
+        int span = Math.min((int) parameter, getSpanCount() - 1);
+        double t = parameter - span;
+        return Bezier.evaluate(anchors[span * 2 + 1], getOutY(span), getInY(span + 1), anchors[span * 2 + 3], t);
+    }
+
+    public double[] getBounds() {
+        return getArcLengths().getBounds();
+    }
+
+    public double getMaxX() {
+        double maxX = 0;
+        for (int i = 0; i < size; ++i) {
+            maxX = Math.max(maxX, Math.max(anchors[i * 2], Math.max(getInX(i), getOutX(i))));
+        }
+        return maxX + thickness;
+    }
+
+    public double getMaxY() {
+        double maxY = 0;
+        for (int i = 0; i < size; ++i) {
+            maxY = Math.max(maxY, Math.max(anchors[i * 2 + 1], Math.max(getInY(i), getOutY(i))));
+        }
+        return maxY + thickness;
+    }
+
+    public double distanceSquared(int span, double x, double y) {
+        return Bezier.distanceSquared(x, y, anchors[span * 2], anchors[span * 2 + 1], getOutX(span), getOutY(span),
+                getInX(span + 1), getInY(span + 1), anchors[span * 2 + 2], anchors[span * 2 + 3]);
+    }
+
+    public String save() {
+        StringBuilder data = new StringBuilder("|");
+
+        data.append(formatColor(color)).append("|");
+        data.append(style).append("|");
+        data.append(thickness).append("|");
+
+        for (int i = 0; i < size; ++i) {
+            data.append(":");
+            data.append(anchors[i * 2]).append(":");
+            data.append(anchors[i * 2 + 1]).append(":");
+            data.append(smooth.get(i)).append(":");
+
+            if (i > 0) {
+                saveControl(data, i, false);
+            }
+
+            if (i < size - 1) {
+                saveControl(data, i, true);
+            }
+
+            data.append("|");
+        }
+
+        return data.toString();
+    }
+
+    private void saveControl(StringBuilder data, int point, boolean out) {
+        double[] offsets = out ? outOffsets : inOffsets;
+
+        data.append("%");
+        data.append(anchors[point * 2]).append("%");
+        data.append(anchors[point * 2 + 1]).append("%");
+        data.append(getHandleX(point, out)).append("%");
+        data.append(getHandleY(point, out)).append("%");
+        data.append(getControlX(point, out)).append("%");
+        data.append(getControlY(point, out)).append("%");
+        data.append(offsets[point * 2]).append("%");
+        data.append(offsets[point * 2 + 1]).append("%");
+        data.append(":");
+    }
+
+    private void parsePoint(String data) {
+        ArrayList<String> pointData = new ArrayList<>(Arrays.asList(data.split(":")));
+        pointData.removeIf(String::isEmpty);
+
+        ensureCapacity(size + 1);
+
+        int index = size++;
+        anchors[index * 2] = Double.parseDouble(pointData.get(0));
+        anchors[index * 2 + 1] = Double.parseDouble(pointData.get(1));
+        smooth.set(index, Boolean.parseBoolean(pointData.get(2)));
+
+        for (int j = 3; j < pointData.size(); ++j) {
+            ArrayList<String> controlData = new ArrayList<>(Arrays.asList(pointData.get(j).split("%")));
+            controlData.removeIf(String::isEmpty);
+
+            double[] offsets = isOutControl(index, j - 3) ? outOffsets : inOffsets;
+            offsets[index * 2] = Double.parseDouble(controlData.get(6));
+            offsets[index * 2 + 1] = Double.parseDouble(controlData.get(7));
+        }
+    }
+
+    private void randomOffset(double[] offsets, int point) {
+        offsets[point * 2] = (random.nextInt(30) + 30) * (random.nextBoolean() ? -1 : 1);
+        offsets[point * 2 + 1] = (random.nextInt(30) + 30) * (random.nextBoolean() ? -1 : 1);
+    }
+
+    public static double[] getDashArray(CurveStyle style, int thickness) {
+        if (style == CurveStyle.DOTTED) {
+            if (thickness >= 15) {
+                return new double[] { 2, 28 };
+            } else {
+                return new double[] { 2, 14 };
+            }
+        } else if (style == CurveStyle.DASHED) {
+            if (thickness >= 15) {
+                return new double[] { 25, 30 };
+            } else {
+                return new double[] { 25, 20 };
+            }
+        } else if (style == CurveStyle.COMBINED) {
+            if (thickness >= 15) {
+                return new double[] { 25, 30, 5, 30 };
+            } else {
+                return new double[] { 25, 20, 5, 20 };
+            }
+        }
+        return new double[0];
+    }
+
+    public static boolean isValidThickness(int thickness) {
+        return thickness >= MIN_THICKNESS && thickness <= MAX_THICKNESS && thickness % THICKNESS_STEP == 0;
+    }
+
+    public static int nearestThickness(double width) {
+        long steps = Math.round(width / THICKNESS_STEP);
+        return (int) Math.max(MIN_THICKNESS / THICKNESS_STEP, Math.min(MAX_THICKNESS / THICKNESS_STEP, steps)) * THICKNESS_STEP;
+    }
+
+    public static String formatColor(int color) {
+        return String.format("0x%08x", color);
+    }
+
+    public static int parseColor(String color) {
+        String hex = color.trim();
+
+        if (hex.startsWith("0x") || hex.startsWith("0X")) {
+            hex = hex.substring(2);
+        } else if (hex.startsWith("#")) {
+            hex = hex.substring(1);
+        }
+
+        if (hex.length() == 6) {
+            hex += "ff";
+        }
+
+        return (int) Long.parseLong(hex, 16);
+    }
+}
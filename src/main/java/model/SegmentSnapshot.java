@@ -0,0 +1,46 @@
+package model;
+
+import java.util.Arrays;
+
+public final class SegmentSnapshot {
+    public final long id;
+    public final int color;
+    public final CurveStyle style;
+    public final int thickness;
+    public final double[] points;
+    public final boolean[] smooth;
+    public final double[] controls;
+
+    public SegmentSnapshot(SegmentModel segment) {
+        int size = segment.size;
+
+        id = segment.id;
+        color = segment.color;
+        style = segment.style;
+        thickness = segment.thickness;
+        points = Arrays.copyOf(segment.anchors, size * 2);
+        smooth = new boolean[size];
+        controls = new double[segment.getSpanCount() * 4];
+
+        for (int i = 0; i < size; ++i) {
+            smooth[i] = segment.smooth.get(i);
+        }
+
+        int index = 0;
+        for (int i = 0; i < size; ++i) {
+            if (i > 0) {
+                controls[index++] = segment.inOffsets[i * 2];
+                controls[index++] = segment.inOffsets[i * 2 + 1];
+            }
+
+            if (i < size - 1) {
+                controls[index++] = segment.outOffsets[i * 2];
+                controls[index++] = segment.outOffsets[i * 2 + 1];
+            }
+        }
+    }
+
+    public int size() {
+        return smooth.length;
+    }
+}
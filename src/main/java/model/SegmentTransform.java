@@ -0,0 +1,182 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class SegmentTransform {
+    public static final int CHUNK_POINTS = 1 << 14;
+
+    public final double scaleX;
+    public final double shearX;
+    public final double translateX;
+    public final double shearY;
+    public final double scaleY;
+    public final double translateY;
+
+    private static class Chunk {
+        private int first;
+        private int from;
+        private int last;
+        private int to;
+    }
+
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private List<SegmentModel> segments;
+        private List<Chunk> chunks;
+        private int from;
+        private int to;
+
+        ChunkTask(List<SegmentModel> segments, List<Chunk> chunks, int from, int to) {
+            this.segments = segments;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                apply(segments, chunks.get(from));
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(segments, chunks, from, middle), new ChunkTask(segments, chunks, middle, to));
+        }
+    }
+
+    public SegmentTransform(double scaleX, double shearX, double translateX, double shearY, double scaleY, double translateY) {
+        this.scaleX = scaleX;
+        this.shearX = shearX;
+        this.translateX = translateX;
+        this.shearY = shearY;
+        this.scaleY = scaleY;
+        this.translateY = translateY;
+    }
+
+    public static SegmentTransform translation(double deltaX, double deltaY) {
+        return new SegmentTransform(1, 0, deltaX, 0, 1, deltaY);
+    }
+
+    public static SegmentTransform scaling(double factorX, double factorY, double pivotX, double pivotY) {
+        return new SegmentTransform(factorX, 0, pivotX - factorX * pivotX, 0, factorY, pivotY - factorY * pivotY);
+    }
+
+    public static SegmentTransform rotation(double degrees, double pivotX, double pivotY) {
+        double radians = Math.toRadians(degrees);
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+
+        if (degrees % 90 == 0) {
+            cos = Math.rint(cos);
+            sin = Math.rint(sin);
+        }
+
+        return new SegmentTransform(cos, -sin, pivotX - cos * pivotX + sin * pivotY, sin, cos, pivotY - sin * pivotX - cos * pivotY);
+    }
+
+    public SegmentTransform inverse() {
+        double determinant = scaleX * scaleY - shearX * shearY;
+
+        if (determinant == 0) {
+            throw new IllegalStateException("Transform is not invertible.");
+        }
+
+        double inverseScaleX = scaleY / determinant;
+        double inverseShearX = -shearX / determinant;
+        double inverseShearY = -shearY / determinant;
+        double inverseScaleY = scaleX / determinant;
+
+        return new SegmentTransform(inverseScaleX, inverseShearX, -(inverseScaleX * translateX + inverseShearX * translateY),
+                inverseShearY, inverseScaleY, -(inverseShearY * translateX + inverseScaleY * translateY));
+    }
+
+    public void apply(SegmentModel segment) {
+        apply(segment, 0, segment.size);
+    }
+
+    public void apply(SegmentModel segment, int from, int to) {
+        transform(segment, from, to);
+        segment.invalidate();
+    }
+
+    private void transform(SegmentModel segment, int from, int to) {
+        double[] anchors = segment.anchors;
+        double[] inOffsets = segment.inOffsets;
+        double[] outOffsets = segment.outOffsets;
+
+        for (int i = from * 2; i < to * 2; i += 2) {
+            double x = anchors[i];
+            double y = anchors[i + 1];
+            anchors[i] = scaleX * x + shearX * y + translateX;
+            anchors[i + 1] = shearY * x + scaleY * y + translateY;
+
+            x = inOffsets[i];
+            y = inOffsets[i + 1];
+            inOffsets[i] = scaleX * x + shearX * y;
+            inOffsets[i + 1] = shearY * x + scaleY * y;
+
+            x = outOffsets[i];
+            y = outOffsets[i + 1];
+            outOffsets[i] = scaleX * x + shearX * y;
+            outOffsets[i + 1] = shearY * x + scaleY * y;
+        }
+    }
+
+    public void apply(List<SegmentModel> segments, ForkJoinPool pool) {
+        ArrayList<Chunk> chunks = new ArrayList<>();
+        Chunk chunk = null;
+        int filled = 0;
+
+        for (int i = 0; i < segments.size(); ++i) {
+            SegmentModel segment = segments.get(i);
+            int point = 0;
+
+            while (point < segment.size) {
+                if (chunk == null) {
+                    chunk = new Chunk();
+                    chunk.first = i;
+                    chunk.from = point;
+                    filled = 0;
+                }
+
+                int taken = Math.min(segment.size - point, CHUNK_POINTS - filled);
+                point += taken;
+                filled += taken;
+                chunk.last = i;
+                chunk.to = point;
+
+                if (filled == CHUNK_POINTS) {
+                    chunks.add(chunk);
+                    chunk = null;
+                }
+            }
+        }
+        if (chunk != null) {
+            chunks.add(chunk);
+        }
+
+        if (chunks.size() == 1 || pool.getParallelism() == 1) {
+            for (Chunk each : chunks) {
+                apply(segments, each);
+            }
+        } else if (!chunks.isEmpty()) {
+            pool.invoke(new ChunkTask(segments, chunks, 0, chunks.size()));
+        }
+
+        for (SegmentModel segment : segments) {
+            segment.invalidate();
+        }
+    }
+
+    private void apply(List<SegmentModel> segments, Chunk chunk) {
+        for (int i = chunk.first; i <= chunk.last; ++i) {
+            SegmentModel segment = segments.get(i);
+            transform(segment, i == chunk.first ? chunk.from : 0, i == chunk.last ? chunk.to : segment.size);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SnapIndex {
+    public static final double CELL_SIZE = 64;
+    public static final int MAX_CELLS = 1024;
+
+    public static class SnapEntry {
+        public SegmentModel segment;
+        public int point;
+        private int cellMinX;
+        private int cellMinY;
+        private int cellMaxX;
+        private int cellMaxY;
+    }
+
+    public static class Snap {
+        public SegmentModel segment;
+        public int point;
+        public boolean control;
+        public double x;
+        public double y;
+    }
+
+    private HashMap<Long, ArrayList<SnapEntry>> cells;
+    private HashMap<SegmentModel, ArrayList<SnapEntry>> entries;
+    private HashMap<SegmentModel, CurvePointBind> bindings;
+
+    public SnapIndex() {
+        cells = new HashMap<>();
+        entries = new HashMap<>();
+        bindings = new HashMap<>();
+    }
+
+    public void add(SegmentModel segment) {
+        ArrayList<SnapEntry> points = new ArrayList<>(segment.size);
+
+        for (int i = 0; i < segment.size; ++i) {
+            SnapEntry entry = new SnapEntry();
+            entry.segment = segment;
+            entry.point = i;
+
+            computeCells(entry);
+            insert(entry);
+            points.add(entry);
+        }
+
+        CurvePointBind binding = point -> {
+            if (point < points.size()) {
+                update(points.get(point));
+            }
+        };
+        segment.bind(binding);
+
+        entries.put(segment, points);
+        bindings.put(segment, binding);
+    }
+
+    public void remove(SegmentModel segment) {
+        ArrayList<SnapEntry> points = entries.remove(segment);
+
+        if (points != null) {
+            segment.unbind(bindings.remove(segment));
+            for (SnapEntry entry : points) {
+                erase(entry, entry.cellMinX, entry.cellMinY, entry.cellMaxX, entry.cellMaxY);
+            }
+        }
+    }
+
+    public void update(SegmentModel segment) {
+        ArrayList<SnapEntry> points = entries.get(segment);
+
+        if (points != null) {
+            for (SnapEntry entry : points) {
+                update(entry);
+            }
+        }
+    }
+
+    public void clear() {
+        for (Map.Entry<SegmentModel, CurvePointBind> binding : bindings.entrySet()) {
+            binding.getKey().unbind(binding.getValue());
+        }
+
+        cells.clear();
+        entries.clear();
+        bindings.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Snap nearest(double x, double y, double radius, SegmentModel excludeSegment, int excludePoint) {
+        Snap best = null;
+        double bestDistance = radius * radius;
+
+        int cellMinX = cell(x - radius);
+        int cellMinY = cell(y - radius);
+        int cellMaxX = cell(x + radius);
+        int cellMaxY = cell(y + radius);
+
+        if ((long) (cellMaxX - cellMinX + 1) * (cellMaxY - cellMinY + 1) > MAX_CELLS) {
+            return null;
+        }
+
+        for (int cellX = cellMinX; cellX <= cellMaxX; ++cellX) {
+            for (int cellY = cellMinY; cellY <= cellMaxY; ++cellY) {
+                ArrayList<SnapEntry> bucket = cells.get(key(cellX, cellY));
+
+                if (bucket == null) {
+                    continue;
+                }
+
+                for (SnapEntry entry : bucket) {
+                    SegmentModel segment = entry.segment;
+                    int point = entry.point;
+
+                    if (segment == excludeSegment && point == excludePoint) {
+                        continue;
+                    }
+
+                    double distance = distanceSquared(segment.getX(point), segment.getY(point), x, y);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = snap(best, segment, point, false, segment.getX(point), segment.getY(point));
+                    }
+
+                    if (!segment.isSmooth(point)) {
+                        continue;
+                    }
+
+                    if (point > 0) {
+                        distance = distanceSquared(segment.getInX(point), segment.getInY(point), x, y);
+                        if (distance < bestDistance) {
+                            bestDistance = distance;
+                            best = snap(best, segment, point, true, segment.getInX(point), segment.getInY(point));
+                        }
+                    }
+
+                    if (point < segment.size - 1) {
+                        distance = distanceSquared(segment.getOutX(point), segment.getOutY(point), x, y);
+                        if (distance < bestDistance) {
+                            bestDistance = distance;
+                            best = snap(best, segment, point, true, segment.getOutX(point), segment.getOutY(point));
+                        }
+                    }
+                }
+            }
+        }
+
+        return best;
+    }
+
+    private static Snap snap(Snap snap, SegmentModel segment, int point, boolean control, double x, double y) {
+        if (snap == null) {
+            snap = new Snap();
+        }
+        snap.segment = segment;
+        snap.point = point;
+        snap.control = control;
+        snap.x = x;
+        snap.y = y;
+        return snap;
+    }
+
+    private static double distanceSquared(double x0, double y0, double x1, double y1) {
+        return (x0 - x1) * (x0 - x1) + (y0 - y1) * (y0 - y1);
+    }
+
+    private void update(SnapEntry entry) {
+        int cellMinX = entry.cellMinX;
+        int cellMinY = entry.cellMinY;
+        int cellMaxX = entry.cellMaxX;
+        int cellMaxY = entry.cellMaxY;
+
+        computeCells(entry);
+
+        if (entry.cellMinX != cellMinX || entry.cellMinY != cellMinY || entry.cellMaxX != cellMaxX || entry.cellMaxY != cellMaxY) {
+            erase(entry, cellMinX, cellMinY, cellMaxX, cellMaxY);
+            insert(entry);
+        }
+    }
+
+    private void computeCells(SnapEntry entry) {
+        SegmentModel segment = entry.segment;
+        int point = entry.point;
+        double minX = segment.getX(point);
+        double minY = segment.getY(point);
+        double maxX = minX;
+        double maxY = minY;
+
+        if (segment.isSmooth(point)) {
+            minX = Math.min(minX, Math.min(segment.getInX(point), segment.getOutX(point)));
+            minY = Math.min(minY, Math.min(segment.getInY(point), segment.getOutY(point)));
+            maxX = Math.max(maxX, Math.max(segment.getInX(point), segment.getOutX(point)));
+            maxY = Math.max(maxY, Math.max(segment.getInY(point), segment.getOutY(point)));
+        }
+
+        entry.cellMinX = cell(minX);
+        entry.cellMinY = cell(minY);
+        entry.cellMaxX = cell(maxX);
+        entry.cellMaxY = cell(maxY);
+    }
+
+    private void insert(SnapEntry entry) {
+        for (int cellX = entry.cellMinX; cellX <= entry.cellMaxX; ++cellX) {
+            for (int cellY = entry.cellMinY; cellY <= entry.cellMaxY; ++cellY) {
+                cells.computeIfAbsent(key(cellX, cellY), key -> new ArrayList<>()).add(entry);
+            }
+        }
+    }
+
+    private void erase(SnapEntry entry, int cellMinX, int cellMinY, int cellMaxX, int cellMaxY) {
+        for (int cellX = cellMinX; cellX <= cellMaxX; ++cellX) {
+            for (int cellY = cellMinY; cellY <= cellMaxY; ++cellY) {
+                long key = key(cellX, cellY);
+                ArrayList<SnapEntry> bucket = cells.get(key);
+
+                if (bucket != null) {
+                    bucket.remove(entry);
+                    if (bucket.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int cell(double value) {
+        return (int) Math.floor(value / CELL_SIZE);
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xffffffffL);
+    }
+}
@@ -0,0 +1,255 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SpanIndex {
+    public static final double CELL_SIZE = 128;
+
+    public static class SpanEntry {
+        public SegmentModel segment;
+        public int span;
+        public long order;
+        public double minX;
+        public double minY;
+        public double maxX;
+        public double maxY;
+        private int cellMinX;
+        private int cellMinY;
+        private int cellMaxX;
+        private int cellMaxY;
+        private long stamp;
+    }
+
+    private HashMap<Long, ArrayList<SpanEntry>> cells;
+    private HashMap<SegmentModel, ArrayList<SpanEntry>> entries;
+    private HashMap<SegmentModel, CurvePointBind> bindings;
+    private FlatteningCache flattening;
+    private double margin;
+    private double extentX;
+    private double extentY;
+    private long order;
+    private long stamp;
+
+    public SpanIndex() {
+        this(null);
+    }
+
+    public SpanIndex(FlatteningCache flattening) {
+        this.flattening = flattening;
+        cells = new HashMap<>();
+        entries = new HashMap<>();
+        bindings = new HashMap<>();
+        margin = 0;
+        extentX = 0;
+        extentY = 0;
+        order = 0;
+        stamp = 0;
+    }
+
+    public void add(SegmentModel segment) {
+        ArrayList<SpanEntry> spans = new ArrayList<>();
+
+        for (int i = 0; i < segment.getSpanCount(); ++i) {
+            SpanEntry entry = new SpanEntry();
+            entry.segment = segment;
+            entry.span = i;
+            entry.order = order++;
+
+            computeBounds(entry);
+            insert(entry);
+            spans.add(entry);
+        }
+
+        CurvePointBind binding = point -> {
+            if (point > 0) {
+                update(spans.get(point - 1));
+            }
+            if (point < spans.size()) {
+                update(spans.get(point));
+            }
+        };
+        segment.bind(binding);
+
+        margin = Math.max(margin, segment.thickness / 2.0);
+        entries.put(segment, spans);
+        bindings.put(segment, binding);
+    }
+
+    public void remove(SegmentModel segment) {
+        ArrayList<SpanEntry> spans = entries.remove(segment);
+
+        if (spans != null) {
+            segment.unbind(bindings.remove(segment));
+            for (SpanEntry entry : spans) {
+                erase(entry);
+            }
+        }
+    }
+
+    public void update(SegmentModel segment) {
+        ArrayList<SpanEntry> spans = entries.get(segment);
+
+        if (spans != null) {
+            for (SpanEntry entry : spans) {
+                update(entry);
+            }
+            margin = Math.max(margin, segment.thickness / 2.0);
+        }
+    }
+
+    public void clear() {
+        for (Map.Entry<SegmentModel, CurvePointBind> binding : bindings.entrySet()) {
+            binding.getKey().unbind(binding.getValue());
+        }
+
+        cells.clear();
+        entries.clear();
+        bindings.clear();
+        margin = 0;
+        extentX = 0;
+        extentY = 0;
+    }
+
+    public double getMargin() {
+        return margin;
+    }
+
+    public double getExtentX() {
+        return extentX + margin * 2;
+    }
+
+    public double getExtentY() {
+        return extentY + margin * 2;
+    }
+
+    public SpanEntry pick(double x, double y, double tolerance) {
+        double reach = tolerance + margin;
+        SpanEntry best = null;
+
+        for (SpanEntry entry : query(x - reach, y - reach, x + reach, y + reach)) {
+            if (best != null && entry.order < best.order) {
+                continue;
+            }
+
+            double radius = entry.segment.thickness / 2.0 + tolerance;
+            if (distanceSquared(entry, x, y) <= radius * radius) {
+                best = entry;
+            }
+        }
+
+        return best;
+    }
+
+    public ArrayList<SegmentModel> select(double minX, double minY, double maxX, double maxY) {
+        HashMap<SegmentModel, Integer> contained = new HashMap<>();
+        ArrayList<SegmentModel> result = new ArrayList<>();
+
+        for (SpanEntry entry : query(minX, minY, maxX, maxY)) {
+            if (entry.minX >= minX && entry.minY >= minY && entry.maxX <= maxX && entry.maxY <= maxY) {
+                int count = contained.merge(entry.segment, 1, Integer::sum);
+                if (count == entry.segment.getSpanCount()) {
+                    result.add(entry.segment);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public ArrayList<SpanEntry> query(double minX, double minY, double maxX, double maxY) {
+        ArrayList<SpanEntry> result = new ArrayList<>();
+        ++stamp;
+
+        for (int cellX = cell(minX); cellX <= cell(maxX); ++cellX) {
+            for (int cellY = cell(minY); cellY <= cell(maxY); ++cellY) {
+                ArrayList<SpanEntry> bucket = cells.get(key(cellX, cellY));
+
+                if (bucket == null) {
+                    continue;
+                }
+
+                for (SpanEntry entry : bucket) {
+                    if (entry.stamp != stamp && entry.maxX >= minX && entry.minX <= maxX && entry.maxY >= minY && entry.minY <= maxY) {
+                        entry.stamp = stamp;
+                        result.add(entry);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private double distanceSquared(SpanEntry entry, double x, double y) {
+        if (flattening != null) {
+            return flattening.distanceSquared(entry.segment, entry.span, x, y);
+        }
+        return entry.segment.distanceSquared(entry.span, x, y);
+    }
+
+    private void update(SpanEntry entry) {
+        int cellMinX = entry.cellMinX;
+        int cellMinY = entry.cellMinY;
+        int cellMaxX = entry.cellMaxX;
+        int cellMaxY = entry.cellMaxY;
+
+        computeBounds(entry);
+
+        if (cell(entry.minX) != cellMinX || cell(entry.minY) != cellMinY || cell(entry.maxX) != cellMaxX || cell(entry.maxY) != cellMaxY) {
+            erase(entry);
+            insert(entry);
+        }
+    }
+
+    private void computeBounds(SpanEntry entry) {
+        SegmentModel segment = entry.segment;
+        int start = entry.span;
+        int end = entry.span + 1;
+
+        entry.minX = Math.min(Math.min(segment.getX(start), segment.getX(end)), Math.min(segment.getOutX(start), segment.getInX(end)));
+        entry.minY = Math.min(Math.min(segment.getY(start), segment.getY(end)), Math.min(segment.getOutY(start), segment.getInY(end)));
+        entry.maxX = Math.max(Math.max(segment.getX(start), segment.getX(end)), Math.max(segment.getOutX(start), segment.getInX(end)));
+        entry.maxY = Math.max(Math.max(segment.getY(start), segment.getY(end)), Math.max(segment.getOutY(start), segment.getInY(end)));
+    }
+
+    private void insert(SpanEntry entry) {
+        entry.cellMinX = cell(entry.minX);
+        entry.cellMinY = cell(entry.minY);
+        entry.cellMaxX = cell(entry.maxX);
+        entry.cellMaxY = cell(entry.maxY);
+        extentX = Math.max(extentX, entry.maxX);
+        extentY = Math.max(extentY, entry.maxY);
+
+        for (int cellX = entry.cellMinX; cellX <= entry.cellMaxX; ++cellX) {
+            for (int cellY = entry.cellMinY; cellY <= entry.cellMaxY; ++cellY) {
+                cells.computeIfAbsent(key(cellX, cellY), key -> new ArrayList<>()).add(entry);
+            }
+        }
+    }
+
+    private void erase(SpanEntry entry) {
+        for (int cellX = entry.cellMinX; cellX <= entry.cellMaxX; ++cellX) {
+            for (int cellY = entry.cellMinY; cellY <= entry.cellMaxY; ++cellY) {
+                long key = key(cellX, cellY);
+                ArrayList<SpanEntry> bucket = cells.get(key);
+
+                if (bucket != null) {
+                    bucket.remove(entry);
+                    if (bucket.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int cell(double value) {
+        return (int) Math.floor(value / CELL_SIZE);
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xffffffffL);
+    }
+}
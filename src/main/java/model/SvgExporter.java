@@ -0,0 +1,82 @@
+package model;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+public class SvgExporter {
+    public static void write(List<SegmentModel> segments, File file) throws IOException {
+        try (BufferedWriter output = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            write(segments, output);
+        }
+    }
+
+    public static void write(List<SegmentModel> segments, Writer output) throws IOException {
+        double width = 0;
+        double height = 0;
+
+        for (SegmentModel segment : segments) {
+            width = Math.max(width, segment.getMaxX());
+            height = Math.max(height, segment.getMaxY());
+        }
+
+        output.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        output.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "\" height=\"" + height
+                + "\" viewBox=\"0 0 " + width + " " + height + "\">\n");
+
+        StringBuilder path = new StringBuilder();
+        for (SegmentModel segment : segments) {
+            if (segment.size < 2) {
+                continue;
+            }
+
+            path.setLength(0);
+            appendPath(path, segment);
+            output.write(path.toString());
+        }
+
+        output.write("</svg>\n");
+    }
+
+    public static void appendPath(StringBuilder path, SegmentModel segment) {
+        path.append("  <path d=\"M ").append(segment.getX(0)).append(' ').append(segment.getY(0));
+
+        for (int i = 0; i < segment.getSpanCount(); ++i) {
+            path.append(" C ").append(segment.getOutX(i)).append(' ').append(segment.getOutY(i));
+            path.append(' ').append(segment.getInX(i + 1)).append(' ').append(segment.getInY(i + 1));
+            path.append(' ').append(segment.getX(i + 1)).append(' ').append(segment.getY(i + 1));
+        }
+
+        path.append("\" fill=\"none\" stroke=\"").append(formatColor(segment.color)).append('"');
+
+        int alpha = segment.color & 0xff;
+        if (alpha != 0xff) {
+            path.append(" stroke-opacity=\"").append(alpha / 255.0).append('"');
+        }
+
+        path.append(" stroke-width=\"").append(segment.thickness).append('"');
+        path.append(" stroke-linecap=\"square\" stroke-linejoin=\"miter\"");
+
+        double[] dashes = SegmentModel.getDashArray(segment.style, segment.thickness);
+        if (dashes.length > 0) {
+            path.append(" stroke-dasharray=\"");
+            for (int i = 0; i < dashes.length; ++i) {
+                if (i > 0) {
+                    path.append(' ');
+                }
+                path.append(dashes[i]);
+            }
+            path.append('"');
+        }
+
+        path.append("/>\n");
+    }
+
+    public static String formatColor(int color) {
+        return String.format("#%06x", color >>> 8);
+    }
+}
@@ -0,0 +1,495 @@
+package model;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Random;
+
+public class SvgReader implements CurveReader {
+    public static final int DEFAULT_COLOR = 0x000000ff;
+    public static final int DEFAULT_THICKNESS = SegmentModel.MIN_THICKNESS;
+
+    private static final HashMap<String, Integer> NAMED_COLORS = new HashMap<>();
+
+    static {
+        NAMED_COLORS.put("black", 0x000000);
+        NAMED_COLORS.put("white", 0xffffff);
+        NAMED_COLORS.put("gray", 0x808080);
+        NAMED_COLORS.put("grey", 0x808080);
+        NAMED_COLORS.put("red", 0xff0000);
+        NAMED_COLORS.put("green", 0x008000);
+        NAMED_COLORS.put("blue", 0x0000ff);
+        NAMED_COLORS.put("yellow", 0xffff00);
+        NAMED_COLORS.put("orange", 0xffa500);
+        NAMED_COLORS.put("purple", 0x800080);
+        NAMED_COLORS.put("cyan", 0x00ffff);
+        NAMED_COLORS.put("magenta", 0xff00ff);
+        NAMED_COLORS.put("brown", 0xa52a2a);
+        NAMED_COLORS.put("pink", 0xffc0cb);
+    }
+
+    private static class Style {
+        private String stroke;
+        private String strokeWidth;
+        private String strokeOpacity;
+        private String dashArray;
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream input) {
+            super(input);
+            count = 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                ++count;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+
+    private CountingInputStream input;
+    private XMLStreamReader reader;
+    private Random random;
+    private long length;
+    private ArrayDeque<Style> styles;
+    private ArrayDeque<SegmentModel> pending;
+
+    public SvgReader(File file, Random random) throws IOException {
+        this.random = random;
+        length = Math.max(file.length(), 1);
+        input = new CountingInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        styles = new ArrayDeque<>();
+        pending = new ArrayDeque<>();
+        styles.push(new Style());
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+
+        try {
+            reader = factory.createXMLStreamReader(input);
+        } catch (XMLStreamException exception) {
+            input.close();
+            throw new IOException("Invalid SVG file: " + exception.getMessage(), exception);
+        }
+    }
+
+    public static boolean isSvg(File file) {
+        return file.getName().toLowerCase().endsWith(".svg");
+    }
+
+    @Override
+    public SegmentModel next() throws IOException {
+        try {
+            while (pending.isEmpty() && reader.hasNext()) {
+                int event = reader.next();
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    Style style = inherit(styles.peek());
+                    styles.push(style);
+
+                    if (reader.getLocalName().equals("path") && isStroked(style)) {
+                        String data = reader.getAttributeValue(null, "d");
+                        if (data != null) {
+                            parsePath(data, style);
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    styles.pop();
+                }
+            }
+        } catch (XMLStreamException exception) {
+            throw new IOException("Invalid SVG file: " + exception.getMessage(), exception);
+        }
+
+        return pending.poll();
+    }
+
+    @Override
+    public double getProgress() {
+        return Math.min(1, (double) input.count / length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException exception) {
+            throw new IOException(exception.getMessage(), exception);
+        } finally {
+            input.close();
+        }
+    }
+
+    private Style inherit(Style parent) {
+        Style style = new Style();
+        style.stroke = parent.stroke;
+        style.strokeWidth = parent.strokeWidth;
+        style.strokeOpacity = parent.strokeOpacity;
+        style.dashArray = parent.dashArray;
+
+        for (int i = 0; i < reader.getAttributeCount(); ++i) {
+            apply(style, reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+
+        String inline = reader.getAttributeValue(null, "style");
+        if (inline != null) {
+            for (String declaration : inline.split(";")) {
+                int colon = declaration.indexOf(':');
+                if (colon > 0) {
+                    apply(style, declaration.substring(0, colon).trim(), declaration.substring(colon + 1).trim());
+                }
+            }
+        }
+
+        return style;
+    }
+
+    private static void apply(Style style, String name, String value) {
+        if (name.equals("stroke")) {
+            style.stroke = value;
+        } else if (name.equals("stroke-width")) {
+            style.strokeWidth = value;
+        } else if (name.equals("stroke-opacity")) {
+            style.strokeOpacity = value;
+        } else if (name.equals("stroke-dasharray")) {
+            style.dashArray = value;
+        }
+    }
+
+    private static boolean isStroked(Style style) {
+        return style.stroke != null && !style.stroke.trim().equalsIgnoreCase("none");
+    }
+
+    private SegmentModel createSegment(Style style) {
+        int thickness = DEFAULT_THICKNESS;
+        if (style.strokeWidth != null) {
+            try {
+                thickness = SegmentModel.nearestThickness(Double.parseDouble(style.strokeWidth.replace("px", "").trim()));
+            } catch (NumberFormatException exception) {
+                thickness = DEFAULT_THICKNESS;
+            }
+        }
+
+        return new SegmentModel(parseColor(style.stroke, style.strokeOpacity), parseStyle(style.dashArray, thickness), thickness, random);
+    }
+
+    public static int parseColor(String stroke, String opacity) {
+        int rgb = DEFAULT_COLOR >>> 8;
+
+        if (stroke != null) {
+            String value = stroke.trim().toLowerCase();
+
+            try {
+                if (value.startsWith("#") && value.length() == 4) {
+                    int r = Integer.parseInt(value.substring(1, 2), 16);
+                    int g = Integer.parseInt(value.substring(2, 3), 16);
+                    int b = Integer.parseInt(value.substring(3, 4), 16);
+                    rgb = (r * 17 << 16) | (g * 17 << 8) | b * 17;
+                } else if (value.startsWith("#") && value.length() == 7) {
+                    rgb = Integer.parseInt(value.substring(1), 16);
+                } else if (value.startsWith("rgb(") && value.endsWith(")")) {
+                    String[] channels = value.substring(4, value.length() - 1).split(",");
+                    rgb = 0;
+                    for (String channel : channels) {
+                        rgb = (rgb << 8) | Math.max(0, Math.min(255, Integer.parseInt(channel.trim())));
+                    }
+                } else if (NAMED_COLORS.containsKey(value)) {
+                    rgb = NAMED_COLORS.get(value);
+                }
+            } catch (NumberFormatException exception) {
+                rgb = DEFAULT_COLOR >>> 8;
+            }
+        }
+
+        int alpha = 0xff;
+        if (opacity != null) {
+            try {
+                alpha = (int) Math.round(Math.max(0, Math.min(1, Double.parseDouble(opacity.trim()))) * 255);
+            } catch (NumberFormatException exception) {
+                alpha = 0xff;
+            }
+        }
+
+        return (rgb << 8) | alpha;
+    }
+
+    public static CurveStyle parseStyle(String dashArray, int thickness) {
+        if (dashArray == null || dashArray.trim().isEmpty() || dashArray.trim().equals("none")) {
+            return CurveStyle.NORMAL;
+        }
+
+        double[] dashes;
+        try {
+            String[] parts = dashArray.trim().split("[\\s,]+");
+            dashes = new double[parts.length];
+            for (int i = 0; i < parts.length; ++i) {
+                dashes[i] = Double.parseDouble(parts[i]);
+            }
+        } catch (NumberFormatException exception) {
+            return CurveStyle.NORMAL;
+        }
+
+        CurveStyle nearest = CurveStyle.NORMAL;
+        double best = Double.MAX_VALUE;
+
+        for (CurveStyle style : CurveStyle.values()) {
+            double[] pattern = SegmentModel.getDashArray(style, thickness);
+            if (pattern.length == 0) {
+                continue;
+            }
+
+            double distance = 0;
+            for (int i = 0; i < 4; ++i) {
+                double difference = dashes[i % dashes.length] - pattern[i % pattern.length];
+                distance += difference * difference;
+            }
+
+            if (distance < best) {
+                best = distance;
+                nearest = style;
+            }
+        }
+
+        return nearest;
+    }
+
+    private void parsePath(String data, Style style) {
+        PathTokenizer tokens = new PathTokenizer(data);
+        SegmentModel segment = null;
+        char command = 'M';
+        double x = 0;
+        double y = 0;
+        double startX = 0;
+        double startY = 0;
+        double lastControlX = 0;
+        double lastControlY = 0;
+        boolean lastCubic = false;
+
+        while (tokens.hasMore()) {
+            if (tokens.isCommand()) {
+                command = tokens.nextCommand();
+            } else if (command == 'Z' || command == 'z') {
+                break;
+            } else if (command == 'M' || command == 'm') {
+                command = command == 'M' ? 'L' : 'l';
+            }
+
+            boolean relative = Character.isLowerCase(command);
+            double baseX = relative ? x : 0;
+            double baseY = relative ? y : 0;
+
+            try {
+                switch (Character.toUpperCase(command)) {
+                    case 'M': {
+                        finish(segment);
+                        x = baseX + tokens.nextNumber();
+                        y = baseY + tokens.nextNumber();
+                        startX = x;
+                        startY = y;
+                        segment = createSegment(style);
+                        addPoint(segment, x, y);
+                        lastCubic = false;
+                        break;
+                    }
+                    case 'L':
+                    case 'H':
+                    case 'V': {
+                        char upper = Character.toUpperCase(command);
+                        double targetX = upper == 'V' ? x : baseX + tokens.nextNumber();
+                        double targetY = upper == 'H' ? y : baseY + tokens.nextNumber();
+                        segment = ensureSegment(segment, style, x, y);
+                        addPoint(segment, targetX, targetY);
+                        x = targetX;
+                        y = targetY;
+                        lastCubic = false;
+                        break;
+                    }
+                    case 'C':
+                    case 'S': {
+                        double x1;
+                        double y1;
+                        if (Character.toUpperCase(command) == 'C') {
+                            x1 = baseX + tokens.nextNumber();
+                            y1 = baseY + tokens.nextNumber();
+                        } else {
+                            x1 = lastCubic ? 2 * x - lastControlX : x;
+                            y1 = lastCubic ? 2 * y - lastControlY : y;
+                        }
+                        double x2 = baseX + tokens.nextNumber();
+                        double y2 = baseY + tokens.nextNumber();
+                        double x3 = baseX + tokens.nextNumber();
+                        double y3 = baseY + tokens.nextNumber();
+
+                        segment = ensureSegment(segment, style, x, y);
+                        setOutControl(segment, x1, y1);
+                        addPoint(segment, x3, y3);
+                        setInControl(segment, x2, y2);
+
+                        x = x3;
+                        y = y3;
+                        lastControlX = x2;
+                        lastControlY = y2;
+                        lastCubic = true;
+                        break;
+                    }
+                    case 'Z': {
+                        if (segment != null && (x != startX || y != startY)) {
+                            addPoint(segment, startX, startY);
+                        }
+                        x = startX;
+                        y = startY;
+                        finish(segment);
+                        segment = null;
+                        lastCubic = false;
+                        break;
+                    }
+                    default:
+                        finish(segment);
+                        return;
+                }
+            } catch (NumberFormatException exception) {
+                finish(segment);
+                return;
+            }
+        }
+
+        finish(segment);
+    }
+
+    private SegmentModel ensureSegment(SegmentModel segment, Style style, double x, double y) {
+        if (segment == null) {
+            segment = createSegment(style);
+            addPoint(segment, x, y);
+        }
+        return segment;
+    }
+
+    private static void addPoint(SegmentModel segment, double x, double y) {
+        segment.ensureCapacity(segment.size + 1);
+
+        int index = segment.size++;
+        segment.anchors[index * 2] = x;
+        segment.anchors[index * 2 + 1] = y;
+        segment.inOffsets[index * 2] = 0;
+        segment.inOffsets[index * 2 + 1] = 0;
+        segment.outOffsets[index * 2] = 0;
+        segment.outOffsets[index * 2 + 1] = 0;
+        segment.smooth.clear(index);
+    }
+
+    private static void setOutControl(SegmentModel segment, double x, double y) {
+        int point = segment.size - 1;
+        segment.outOffsets[point * 2] = x - segment.anchors[point * 2];
+        segment.outOffsets[point * 2 + 1] = y - segment.anchors[point * 2 + 1];
+        if (segment.outOffsets[point * 2] != 0 || segment.outOffsets[point * 2 + 1] != 0) {
+            segment.smooth.set(point);
+        }
+    }
+
+    private static void setInControl(SegmentModel segment, double x, double y) {
+        int point = segment.size - 1;
+        segment.inOffsets[point * 2] = x - segment.anchors[point * 2];
+        segment.inOffsets[point * 2 + 1] = y - segment.anchors[point * 2 + 1];
+        if (segment.inOffsets[point * 2] != 0 || segment.inOffsets[point * 2 + 1] != 0) {
+            segment.smooth.set(point);
+        }
+    }
+
+    private void finish(SegmentModel segment) {
+        if (segment != null && segment.size >= 2) {
+            pending.add(segment);
+        }
+    }
+
+    private static class PathTokenizer {
+        private String data;
+        private int position;
+
+        private PathTokenizer(String data) {
+            this.data = data;
+            position = 0;
+            skipSeparators();
+        }
+
+        private boolean hasMore() {
+            return position < data.length();
+        }
+
+        private boolean isCommand() {
+            char c = data.charAt(position);
+            return Character.isLetter(c) && c != 'e' && c != 'E';
+        }
+
+        private char nextCommand() {
+            char command = data.charAt(position++);
+            skipSeparators();
+            return command;
+        }
+
+        private double nextNumber() {
+            int start = position;
+
+            if (position < data.length() && (data.charAt(position) == '-' || data.charAt(position) == '+')) {
+                ++position;
+            }
+
+            boolean dot = false;
+            while (position < data.length()) {
+                char c = data.charAt(position);
+                if (Character.isDigit(c)) {
+                    ++position;
+                } else if (c == '.' && !dot) {
+                    dot = true;
+                    ++position;
+                } else if ((c == 'e' || c == 'E') && position > start) {
+                    ++position;
+                    if (position < data.length() && (data.charAt(position) == '-' || data.charAt(position) == '+')) {
+                        ++position;
+                    }
+                } else {
+                    break;
+                }
+            }
+
+            if (position == start) {
+                throw new NumberFormatException("Expected a number at " + start);
+            }
+
+            double value = Double.parseDouble(data.substring(start, position));
+            skipSeparators();
+            return value;
+        }
+
+        private void skipSeparators() {
+            while (position < data.length() && (Character.isWhitespace(data.charAt(position)) || data.charAt(position) == ',')) {
+                ++position;
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package model;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Deflater;
+
+public class TiledRasterizer {
+    public static final int TILE_SIZE = 128;
+
+    private double scale;
+    private int width;
+    private int height;
+    private int columns;
+    private int rows;
+    private Path2D.Double[] paths;
+    private BasicStroke[] strokes;
+    private Color[] colors;
+    private ArrayList<ArrayList<Integer>> tiles;
+
+    public TiledRasterizer(List<SegmentModel> segments, double scale) {
+        this.scale = scale;
+
+        double maxX = 1;
+        double maxY = 1;
+        for (SegmentModel segment : segments) {
+            maxX = Math.max(maxX, segment.getMaxX());
+            maxY = Math.max(maxY, segment.getMaxY());
+        }
+
+        width = (int) Math.ceil(maxX * scale);
+        height = (int) Math.ceil(maxY * scale);
+        columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        paths = new Path2D.Double[segments.size()];
+        strokes = new BasicStroke[segments.size()];
+        colors = new Color[segments.size()];
+        tiles = new ArrayList<>();
+
+        for (int i = 0; i < columns * rows; ++i) {
+            tiles.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < segments.size(); ++i) {
+            SegmentModel segment = segments.get(i);
+            if (segment.size < 2) {
+                continue;
+            }
+
+            paths[i] = PngExporter.createPath(segment);
+            strokes[i] = PngExporter.createStroke(segment);
+            colors[i] = PngExporter.toColor(segment.color);
+
+            double reach = segment.thickness * PngExporter.MITER_LIMIT / 2 + 1 / scale;
+            double[] bounds = segment.getBounds();
+
+            int column0 = Math.max(0, (int) Math.floor((bounds[0] - reach) * scale / TILE_SIZE));
+            int row0 = Math.max(0, (int) Math.floor((bounds[1] - reach) * scale / TILE_SIZE));
+            int column1 = Math.min(columns - 1, (int) Math.floor((bounds[2] + reach) * scale / TILE_SIZE));
+            int row1 = Math.min(rows - 1, (int) Math.floor((bounds[3] + reach) * scale / TILE_SIZE));
+
+            for (int row = row0; row <= row1; ++row) {
+                for (int column = column0; column <= column1; ++column) {
+                    tiles.get(row * columns + column).add(i);
+                }
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int[] renderBand(int row) {
+        int bandHeight = Math.min(TILE_SIZE, height - row * TILE_SIZE);
+        BufferedImage image = new BufferedImage(width, bandHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, bandHeight);
+            graphics.translate(0, -row * TILE_SIZE);
+            AffineTransform band = graphics.getTransform();
+
+            for (int column = 0; column < columns; ++column) {
+                ArrayList<Integer> segments = tiles.get(row * columns + column);
+                if (segments.isEmpty()) {
+                    continue;
+                }
+
+                graphics.setTransform(band);
+                graphics.setClip(column * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+                graphics.scale(scale, scale);
+                for (int segment : segments) {
+                    graphics.setColor(colors[segment]);
+                    graphics.setStroke(strokes[segment]);
+                    graphics.draw(paths[segment]);
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    public void write(File file, int threads) throws IOException {
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            write(output, threads, Deflater.BEST_SPEED);
+        }
+    }
+
+    public void write(OutputStream output, int threads, int level) throws IOException {
+        PngWriter writer = new PngWriter(output, width, height);
+
+        if (threads <= 1) {
+            for (int row = 0; row < rows; ++row) {
+                writer.write(compressBand(row, level));
+            }
+            writer.finish();
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ArrayDeque<ForkJoinTask<PngWriter.Block>> pending = new ArrayDeque<>();
+
+        try {
+            for (int row = 0; row < rows; ++row) {
+                int band = row;
+                pending.add(pool.submit(() -> compressBand(band, level)));
+
+                if (pending.size() > threads) {
+                    writer.write(pending.poll().get());
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                writer.write(pending.poll().get());
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export was interrupted.", exception);
+        } catch (ExecutionException exception) {
+            throw new IOException("Rendering failed: " + exception.getCause().getMessage(), exception.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        writer.finish();
+    }
+
+    private PngWriter.Block compressBand(int row, int level) {
+        int bandHeight = Math.min(TILE_SIZE, height - row * TILE_SIZE);
+        return PngWriter.compress(renderBand(row), width, bandHeight, level, row == rows - 1);
+    }
+}
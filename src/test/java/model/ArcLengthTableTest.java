@@ -0,0 +1,108 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ArcLengthTableTest {
+    private static SegmentModel curve(double... points) {
+        SegmentModel segment = new SegmentModel(0x000000ff, CurveStyle.NORMAL, 5, new Random(1));
+        segment.add(points[0], points[1]);
+        segment.add(points[6], points[7]);
+        segment.smooth.set(0);
+        segment.smooth.set(1);
+        segment.outOffsets[0] = points[2] - points[0];
+        segment.outOffsets[1] = points[3] - points[1];
+        segment.inOffsets[2] = points[4] - points[6];
+        segment.inOffsets[3] = points[5] - points[7];
+        segment.getArcLengths().invalidate();
+        return segment;
+    }
+
+    private static double reference(double[] p, double to) {
+        int steps = 200000;
+        double step = to / steps;
+        double sum = 0;
+
+        for (int i = 0; i <= steps; ++i) {
+            double weight = i == 0 || i == steps ? 1 : i % 2 == 1 ? 4 : 2;
+            sum += weight * Bezier.speed(p[0], p[1], p[2], p[3], p[4], p[5], p[6], p[7], i * step);
+        }
+
+        return sum * step / 3;
+    }
+
+    private static double parabola(double u) {
+        return (u * Math.sqrt(1 + u * u) + Math.log(u + Math.sqrt(1 + u * u))) / 2;
+    }
+
+    @Test
+    public void measuresStraightLineExactly() {
+        SegmentModel segment = new SegmentModel(0x000000ff, CurveStyle.NORMAL, 5, new Random(1));
+        segment.add(0, 0);
+        segment.add(300, 400);
+        segment.smooth.clear();
+        segment.getArcLengths().invalidate();
+
+        assertEquals(500, segment.getLength(), 1e-9);
+
+        for (int i = 1; i < 10; ++i) {
+            double parameter = segment.getParameterAtLength(i * 50);
+            assertEquals(i * 30, segment.getXAt(parameter), 1e-4);
+            assertEquals(i * 40, segment.getYAt(parameter), 1e-4);
+        }
+    }
+
+    @Test
+    public void measuresParabolaWithinTolerance() {
+        // y = 2x - x^2 / 50 on [0, 100], the quadratic (0, 0) (50, 100) (100, 0) raised to a cubic
+        SegmentModel segment = curve(0, 0, 100.0 / 3, 200.0 / 3, 200.0 / 3, 200.0 / 3, 100, 0);
+        double exact = 25 * (parabola(2) - parabola(-2));
+
+        assertEquals(exact, segment.getLength(), exact * 1e-6);
+
+        for (int x = 5; x < 100; x += 5) {
+            double distance = 25 * (parabola(2) - parabola(2 - x / 25.0));
+            assertEquals(x, segment.getXAt(segment.getParameterAtLength(distance)), 1e-4);
+        }
+    }
+
+    @Test
+    public void getParameterInvertsGetDistance() {
+        SegmentModel segment = DocumentGenerator.generate(3, 1, 40).segments.get(0);
+        ArcLengthTable table = segment.getArcLengths();
+
+        for (int span = 0; span < segment.size - 1; ++span) {
+            double start = table.getDistance(span);
+            double length = table.getSpanLength(span);
+            assertEquals(start + length, table.getDistance(span + 1), 1e-9);
+
+            if (length > 1e-9) {
+                assertEquals(span, table.getParameter(start), 1e-6);
+            }
+        }
+
+        assertEquals(segment.size - 1, table.getParameter(table.getLength()), 1e-9);
+    }
+
+    @Test
+    public void invertsThroughCusp() {
+        // the derivative vanishes at t = 0.5
+        double[] points = {0, 0, 100, 100, 0, 100, 100, 0};
+        SegmentModel segment = curve(points);
+        double length = reference(points, 1);
+
+        assertEquals(length, segment.getLength(), length * 1e-6);
+
+        for (int i = 1; i < 40; ++i) {
+            double distance = length * i / 40;
+            double parameter = segment.getParameterAtLength(distance);
+            assertEquals(distance, reference(points, parameter), 1e-4);
+        }
+
+        double middle = reference(points, 0.5);
+        assertEquals(0.5, segment.getParameterAtLength(middle), 1e-4);
+    }
+}
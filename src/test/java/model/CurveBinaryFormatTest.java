@@ -0,0 +1,126 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CurveBinaryFormatTest {
+    private static CurveDocument load(File file) throws IOException {
+        CurveDocument document = new CurveDocument(new Random(2));
+        document.load(file);
+        return document;
+    }
+
+    private static void assertSameSegments(CurveDocument expected, CurveDocument actual, double delta) {
+        assertEquals(expected.segments.size(), actual.segments.size());
+
+        for (int i = 0; i < expected.segments.size(); ++i) {
+            SegmentSnapshot first = new SegmentSnapshot(expected.segments.get(i));
+            SegmentSnapshot second = new SegmentSnapshot(actual.segments.get(i));
+
+            assertEquals(first.color, second.color);
+            assertEquals(first.style, second.style);
+            assertEquals(first.thickness, second.thickness);
+            assertArrayEquals(first.points, second.points, delta);
+            assertArrayEquals(first.controls, second.controls, delta);
+            for (int j = 0; j < first.smooth.length; ++j) {
+                assertEquals(first.smooth[j], second.smooth[j]);
+            }
+        }
+    }
+
+    private static File write(byte[] data) throws IOException {
+        File file = File.createTempFile("curves", ".curve");
+        file.deleteOnExit();
+        Files.write(file.toPath(), data);
+        return file;
+    }
+
+    private static void assertRejected(byte[] data) throws IOException {
+        try (CurveReader reader = CurveReader.open(write(data), new Random(1))) {
+            while (reader.next() != null) {
+            }
+            fail("Corrupt file was read.");
+        } catch (IOException exception) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void binaryRoundTripIsByteForByte() throws Exception {
+        CurveDocument document = DocumentGenerator.generate(1, 40, 25);
+        File first = File.createTempFile("curves", ".curve");
+        File second = File.createTempFile("curves", ".curve");
+        first.deleteOnExit();
+        second.deleteOnExit();
+
+        document.save(first);
+        CurveDocument loaded = load(first);
+        loaded.save(second);
+
+        assertSameSegments(document, loaded, 0);
+        assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+    }
+
+    @Test
+    public void singlePrecisionRoundTrip() throws Exception {
+        CurveDocument document = DocumentGenerator.generate(2, 10, 25);
+        File file = File.createTempFile("curves", ".curve");
+        file.deleteOnExit();
+
+        CurveBinaryFormat.write(document.snapshot(), file, true);
+
+        assertSameSegments(document, load(file), 1e-3);
+    }
+
+    @Test
+    public void textRoundTripIsByteForByte() throws Exception {
+        CurveDocument document = DocumentGenerator.generate(3, 40, 25);
+        String text = document.save();
+
+        CurveDocument loaded = load(write(text.getBytes(StandardCharsets.UTF_8)));
+
+        assertSameSegments(document, loaded, 0);
+        assertEquals(text, loaded.save());
+    }
+
+    @Test
+    public void rejectsCorruptFiles() throws Exception {
+        File file = File.createTempFile("curves", ".curve");
+        file.deleteOnExit();
+        DocumentGenerator.generate(4, 3, 10).save(file);
+        byte[] data = Files.readAllBytes(file.toPath());
+        int size = CurveBinaryFormat.HEADER_SIZE + 9;
+
+        byte[] truncated = new byte[data.length - 40];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertRejected(truncated);
+
+        byte[] negative = data.clone();
+        ByteBuffer.wrap(negative).putInt(size, -1);
+        assertRejected(negative);
+
+        byte[] huge = data.clone();
+        ByteBuffer.wrap(huge).putInt(size, Integer.MAX_VALUE);
+        assertRejected(huge);
+
+        byte[] count = data.clone();
+        ByteBuffer.wrap(count).putInt(8, 1 << 20);
+        assertRejected(count);
+
+        byte[] thickness = data.clone();
+        ByteBuffer.wrap(thickness).putInt(CurveBinaryFormat.HEADER_SIZE + 5, 3);
+        assertRejected(thickness);
+
+        assertRejected(new byte[] { 0x43, 0x52, 0x56, 0x42, 0, 1 });
+    }
+}
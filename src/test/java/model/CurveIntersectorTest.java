@@ -0,0 +1,102 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CurveIntersectorTest {
+    private static SegmentModel polyline(double... points) {
+        SegmentModel segment = new SegmentModel(0, CurveStyle.NORMAL, 1, new Random(1));
+
+        for (int i = 0; i < points.length; i += 2) {
+            segment.add(points[i], points[i + 1]);
+        }
+        segment.smooth.clear();
+        return segment;
+    }
+
+    @Test
+    public void closedPathDoesNotCrossItself() {
+        SegmentModel square = polyline(0, 0, 100, 0, 100, 100, 0, 100, 0, 0);
+
+        assertEquals(0, new CurveIntersector(Arrays.asList(square)).find().size());
+    }
+
+    @Test
+    public void closedPathStillReportsRealCrossings() {
+        SegmentModel square = polyline(0, 0, 100, 0, 100, 100, 0, 100, 0, 0);
+        SegmentModel line = polyline(-50, 50, 150, 50);
+
+        ArrayList<CurveIntersector.Intersection> found = CurveIntersector.find(square, line);
+
+        assertEquals(2, found.size());
+        for (CurveIntersector.Intersection intersection : found) {
+            assertEquals(50, intersection.y, 1e-6);
+            assertTrue(intersection.x == 0 || intersection.x == 100);
+        }
+    }
+
+    @Test
+    public void snappedSegmentsOnlyTouch() {
+        SegmentModel first = polyline(0, 0, 100, 0, 100, 100);
+        SegmentModel second = polyline(100, 100, 0, 100);
+        SegmentModel third = polyline(0, 100, 0, 0);
+
+        assertEquals(0, new CurveIntersector(Arrays.asList(first, second, third)).find().size());
+    }
+
+    @Test
+    public void snappedSegmentsStillReportRealCrossings() {
+        SegmentModel first = polyline(0, 0, 100, 100);
+        SegmentModel second = polyline(100, 100, 100, 0, 0, 100);
+
+        ArrayList<CurveIntersector.Intersection> found = CurveIntersector.find(first, second);
+
+        assertEquals(1, found.size());
+        assertEquals(50, found.get(0).x, 1e-6);
+        assertEquals(50, found.get(0).y, 1e-6);
+    }
+
+    @Test
+    public void segmentsCrossingThroughASharedAnchorAreReported() {
+        SegmentModel first = polyline(0, 0, 50, 50, 100, 100);
+        SegmentModel second = polyline(100, 0, 50, 50, 0, 100);
+
+        ArrayList<CurveIntersector.Intersection> found = CurveIntersector.find(first, second);
+
+        assertEquals(1, found.size());
+        assertEquals(50, found.get(0).x, 1e-6);
+        assertEquals(50, found.get(0).y, 1e-6);
+    }
+
+    @Test
+    public void segmentsTouchingAtASharedAnchorAreNotReported() {
+        SegmentModel first = polyline(0, 0, 50, 50, 100, 0);
+        SegmentModel second = polyline(0, 100, 50, 50, 100, 100);
+
+        assertEquals(0, CurveIntersector.find(first, second).size());
+    }
+
+    @Test
+    public void curvesCrossingThroughASharedAnchorAreReported() {
+        SegmentModel first = polyline(0, 0, 50, 50, 100, 100);
+        SegmentModel second = polyline(100, 0, 50, 50, 0, 100);
+        first.smooth.set(1);
+        second.smooth.set(1);
+        first.outOffsets[2] = 20;
+        first.outOffsets[3] = 10;
+        first.inOffsets[2] = -20;
+        first.inOffsets[3] = -10;
+        second.outOffsets[2] = -20;
+        second.outOffsets[3] = 10;
+        second.inOffsets[2] = 20;
+        second.inOffsets[3] = -10;
+
+        assertEquals(1, CurveIntersector.find(first, second).size());
+    }
+}
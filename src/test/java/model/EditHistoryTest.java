@@ -0,0 +1,89 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EditHistoryTest {
+    private static class Step implements EditCommand {
+        private ArrayList<String> log;
+        private String name;
+
+        private Step(ArrayList<String> log, String name) {
+            this.log = log;
+            this.name = name;
+        }
+
+        @Override
+        public void undo() {
+            log.add("undo " + name);
+        }
+
+        @Override
+        public void redo() {
+            log.add("redo " + name);
+        }
+    }
+
+    @Test
+    public void evictsOldestCommandsBeyondCapacity() {
+        ArrayList<String> log = new ArrayList<>();
+        EditHistory history = new EditHistory(3);
+
+        for (int i = 0; i < 5; ++i) {
+            history.push(new Step(log, "" + i));
+        }
+
+        assertEquals(3, history.size());
+        while (history.undo()) {
+        }
+        assertEquals("[undo 4, undo 3, undo 2]", log.toString());
+        assertFalse(history.canUndo());
+    }
+
+    @Test
+    public void newCommandClearsRedo() {
+        ArrayList<String> log = new ArrayList<>();
+        EditHistory history = new EditHistory();
+
+        history.push(new Step(log, "a"));
+        history.push(new Step(log, "b"));
+        assertTrue(history.undo());
+        assertTrue(history.canRedo());
+
+        history.push(new Step(log, "c"));
+
+        assertFalse(history.canRedo());
+        assertFalse(history.redo());
+        assertTrue(history.undo());
+        assertTrue(history.undo());
+        assertEquals("[undo b, undo c, undo a]", log.toString());
+    }
+
+    @Test
+    public void removeIfFiltersBothStacks() {
+        ArrayList<String> log = new ArrayList<>();
+        EditHistory history = new EditHistory();
+        Step pen1 = new Step(log, "pen1");
+        Step pen2 = new Step(log, "pen2");
+        Step pen3 = new Step(log, "pen3");
+
+        history.push(pen1);
+        history.push(new Step(log, "paste"));
+        history.push(pen2);
+        history.push(pen3);
+        history.undo();
+
+        history.removeIf(command -> command == pen1 || command == pen2 || command == pen3);
+
+        assertEquals(1, history.size());
+        assertFalse(history.canRedo());
+        assertTrue(history.undo());
+        assertFalse(history.canUndo());
+        assertEquals("[undo pen3, undo paste]", log.toString());
+    }
+}
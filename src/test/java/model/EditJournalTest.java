@@ -0,0 +1,134 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class EditJournalTest {
+    private static CurveDocument document() {
+        CurveDocument document = new CurveDocument(new Random(1));
+        SegmentModel segment = new SegmentModel(0x000000ff, CurveStyle.NORMAL, 5, document.random);
+        segment.add(0, 0);
+        segment.add(100, 0);
+        segment.add(100, 100);
+        document.add(segment);
+        return document;
+    }
+
+    private static int recover(File directory, CurveDocument document) throws Exception {
+        EditJournal journal = new EditJournal(directory);
+
+        try {
+            return journal.recover(document);
+        } finally {
+            journal.abandon();
+        }
+    }
+
+    @Test
+    public void recoversEditsAfterCompaction() throws Exception {
+        File directory = Files.createTempDirectory("journal").toFile();
+        CurveDocument document = document();
+        EditJournal journal = new EditJournal(directory);
+
+        journal.compact(document.snapshot());
+        journal.pointMoved(document.segments.get(0), 1, 50, 50);
+        journal.styleChanged(document.segments.get(0));
+        journal.flush();
+        journal.sync();
+        journal.abandon();
+
+        CurveDocument recovered = new CurveDocument(new Random(2));
+        assertEquals(2, recover(directory, recovered));
+        assertEquals(1, recovered.segments.size());
+        assertEquals(50, recovered.segments.get(0).getX(1), 0);
+    }
+
+    @Test
+    public void keepsRecordsBeforeAnInvalidOne() throws Exception {
+        File directory = Files.createTempDirectory("journal").toFile();
+        CurveDocument document = document();
+        SegmentModel segment = document.segments.get(0);
+        EditJournal journal = new EditJournal(directory);
+
+        journal.compact(document.snapshot());
+        journal.pointMoved(segment, 1, 50, 50);
+        journal.pointMoved(segment, 99, 0, 0);
+        journal.pointMoved(segment, 2, 70, 70);
+        journal.flush();
+        journal.sync();
+        journal.abandon();
+
+        CurveDocument recovered = new CurveDocument(new Random(2));
+        assertEquals(1, recover(directory, recovered));
+        assertEquals(50, recovered.segments.get(0).getX(1), 0);
+        assertEquals(100, recovered.segments.get(0).getX(2), 0);
+
+        Files.write(new File(directory, "recovery-0.journal").toPath(), new byte[] { 0x7f, 1, 2, 3 }, StandardOpenOption.APPEND);
+        recovered = new CurveDocument(new Random(3));
+        assertEquals(1, recover(directory, recovered));
+    }
+
+    @Test
+    public void ignoresBaseOfAnUnfinishedCompaction() throws Exception {
+        File directory = Files.createTempDirectory("journal").toFile();
+        CurveDocument document = document();
+        EditJournal journal = new EditJournal(directory);
+
+        journal.compact(document.snapshot());
+        journal.pointMoved(document.segments.get(0), 0, 10, 10);
+        journal.flush();
+        journal.sync();
+        journal.abandon();
+
+        CurveDocument other = document();
+        other.add(new SegmentModel(other.segments.get(0).color, CurveStyle.DOTTED, 10, other.random));
+        for (File base : directory.listFiles((parent, name) -> name.endsWith(".curve"))) {
+            String name = base.getName();
+            long generation = Long.parseLong(name.substring(name.lastIndexOf('-') + 1, name.indexOf('.')));
+            other.save(new File(directory, name.substring(0, name.lastIndexOf('-') + 1) + (generation + 1) + ".curve"));
+        }
+
+        CurveDocument recovered = new CurveDocument(new Random(2));
+        assertEquals(1, recover(directory, recovered));
+        assertEquals(1, recovered.segments.size());
+        assertEquals(10, recovered.segments.get(0).getX(0), 0);
+    }
+
+    @Test
+    public void editorsSharingADirectoryKeepSeparateJournals() throws Exception {
+        File directory = Files.createTempDirectory("journal").toFile();
+        CurveDocument first = document();
+        CurveDocument second = document();
+        EditJournal firstJournal = new EditJournal(directory);
+        EditJournal secondJournal = new EditJournal(directory);
+
+        firstJournal.compact(first.snapshot());
+        firstJournal.pointMoved(first.segments.get(0), 0, 10, 10);
+        firstJournal.flush();
+        firstJournal.sync();
+
+        secondJournal.compact(second.snapshot());
+        secondJournal.compact(second.snapshot());
+        secondJournal.pointMoved(second.segments.get(0), 0, 20, 20);
+        secondJournal.flush();
+        secondJournal.sync();
+        firstJournal.abandon();
+
+        CurveDocument recovered = new CurveDocument(new Random(2));
+        EditJournal recovering = new EditJournal(directory);
+        assertEquals(1, recovering.recover(recovered));
+        assertEquals(10, recovered.segments.get(0).getX(0), 0);
+        recovering.close();
+
+        secondJournal.abandon();
+        recovered = new CurveDocument(new Random(3));
+        assertEquals(1, recover(directory, recovered));
+        assertEquals(20, recovered.segments.get(0).getX(0), 0);
+    }
+}
@@ -0,0 +1,50 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SvgReaderTest {
+    private static ArrayList<SegmentModel> read(String name) throws Exception {
+        ArrayList<SegmentModel> segments = new ArrayList<>();
+
+        try (SvgReader reader = new SvgReader(new File(SvgReaderTest.class.getResource(name).toURI()), new Random(1))) {
+            SegmentModel segment;
+            while ((segment = reader.next()) != null) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    @Test
+    public void skipsUnstrokedPaths() throws Exception {
+        ArrayList<SegmentModel> segments = read("strokes.svg");
+
+        assertEquals(2, segments.size());
+        assertEquals(40, segments.get(0).getY(0), 0);
+        assertEquals(0xff0000ff, segments.get(0).color);
+        assertEquals(5, segments.get(0).thickness);
+        assertEquals(50, segments.get(1).getY(0), 0);
+        assertEquals(0x0000ffff, segments.get(1).color);
+    }
+
+    @Test
+    public void mapsStrokeWidthToSupportedThickness() throws Exception {
+        ArrayList<SegmentModel> segments = read("widths.svg");
+
+        assertEquals(4, segments.size());
+        assertEquals(SvgReader.DEFAULT_THICKNESS, segments.get(0).thickness);
+        assertEquals(5, segments.get(1).thickness);
+        assertEquals(10, segments.get(2).thickness);
+        assertEquals(20, segments.get(3).thickness);
+        for (SegmentModel segment : segments) {
+            assertTrue(SegmentModel.isValidThickness(segment.thickness));
+        }
+    }
+}